@@ -0,0 +1,62 @@
+package benchmarks;
+
+import Engine.src.Components.BasicComponent;
+import Engine.src.ECS.AI;
+import Engine.src.ECS.AIScheduler;
+import Engine.src.ECS.EntityManager;
+import Engine.src.ECS.Navigation.NavigationService;
+import Engine.src.Utilities.GameRandom;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI.follow and AI.flee for one enemy chasing or running from the user
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AIBenchmark {
+    //far enough that the follower never reaches the user during a measurement
+    private static final double FAR_AWAY = 1e12;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int entityCount;
+
+    private EntityManager myEntityManager;
+    private AI myAI;
+    private int myEnemyID;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SyntheticWorld world = new SyntheticWorld(entityCount, 0.05, 42);
+        myEntityManager = new EntityManager(world.getActiveObjects(), 5);
+        myEntityManager.setBroadPhase(world.getBroadPhase());
+        //every call makes a full decision: no entity is too far from the view and the time budget never runs out
+        AIScheduler scheduler = new AIScheduler(myEntityManager);
+        scheduler.setDistances(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        scheduler.setBudgetMicros(Long.MAX_VALUE / 1000);
+        myAI = new AI(myEntityManager, new NavigationService(myEntityManager, 1, 1), scheduler,
+                new GameRandom(GameRandom.DEFAULT_SEED));
+        myEnemyID = world.getMovingEntities().get(world.getMovingEntities().size() - 1);
+        if (myEnemyID == SyntheticWorld.USER_ID)
+            throw new IllegalStateException("The generated world has no enemies");
+        //above the level, so fleeing never has to steer around anything
+        BasicComponent enemy = myEntityManager.getComponent(myEnemyID, BasicComponent.class);
+        enemy.setY(-FAR_AWAY);
+        myEntityManager.refreshBounds(myEnemyID);
+    }
+
+    @Benchmark
+    public void follow() {
+        myAI.follow(myEnemyID, SyntheticWorld.USER_ID);
+    }
+
+    @Benchmark
+    public void flee() {
+        myAI.flee(myEnemyID, SyntheticWorld.USER_ID);
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import Engine.src.Collections.IntObjectMap;
+import Engine.src.Controller.LevelManager;
+import Engine.src.ECS.CollisionHandler;
+import Engine.src.ECS.EntityManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One collision pass (movement, broad phase, narrow phase and responses) per invocation. Sampled as well as averaged
+ * so the report includes per-frame latency percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollisionBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int entityCount;
+
+    @Param({"0.05", "0.25"})
+    public double movingFraction;
+
+    private CollisionHandler myCollisionHandler;
+
+    //entities fall and settle while the benchmark runs, so each iteration starts again from the generated level
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SyntheticWorld world = new SyntheticWorld(entityCount, movingFraction, 42);
+        EntityManager entityManager = new EntityManager(world.getActiveObjects(), 5);
+        entityManager.setBroadPhase(world.getBroadPhase());
+        LevelManager levelManager = new LevelManager(new IntObjectMap<>(), new ArrayList<>(), entityManager, 0,
+                world.getLevelWidth(), world.getLevelHeight());
+        myCollisionHandler = new CollisionHandler(entityManager, levelManager);
+        myCollisionHandler.setCollisionResponses(new HashMap<>());
+    }
+
+    @Benchmark
+    public void handleCollisions() {
+        myCollisionHandler.handleCollisions();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import Engine.src.Controller.Controller;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole simulation tick: triggers, entity logic, timers and collisions. Sampled as well as averaged so the report
+ * includes per-frame latency percentiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int entityCount;
+
+    private Controller myController;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SyntheticWorld world = new SyntheticWorld(entityCount, 0.05, 42);
+        myController = new Controller(world, 5, 800, 600, world.getLevelWidth(), world.getLevelHeight());
+    }
+
+    @Benchmark
+    public void updateScene() {
+        myController.updateScene();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.MotionComponent;
+import Engine.src.ECS.EntityManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component lookup and line-of-sight checks against the EntityManager
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityManagerBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int entityCount;
+
+    private EntityManager myEntityManager;
+    private int[] myLookupIDs;
+    private int myNext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticWorld world = new SyntheticWorld(entityCount, 0.05, 42);
+        myEntityManager = new EntityManager(world.getActiveObjects(), 5);
+        myEntityManager.setBroadPhase(world.getBroadPhase());
+        Random random = new Random(7);
+        myLookupIDs = new int[LOOKUPS];
+        for (int k = 0; k < LOOKUPS; k++)
+            myLookupIDs[k] = random.nextInt(entityCount);
+    }
+
+    private int nextID() {
+        myNext = (myNext + 1) & (LOOKUPS - 1);
+        return myLookupIDs[myNext];
+    }
+
+    @Benchmark
+    public BasicComponent getComponent() {
+        return myEntityManager.getComponent(nextID(), BasicComponent.class);
+    }
+
+    //most entities are static blocks, so this mostly measures the miss path
+    @Benchmark
+    public MotionComponent getMissingComponent() {
+        return myEntityManager.getComponent(nextID(), MotionComponent.class);
+    }
+
+    @Benchmark
+    public boolean targetEntityObscured() {
+        return myEntityManager.targetEntityObscured(nextID(), SyntheticWorld.USER_ID);
+    }
+}
@@ -0,0 +1,106 @@
+package benchmarks;
+
+import Engine.src.Components.*;
+import Engine.src.Controller.GameSource;
+import Engine.src.ECS.Collision.BroadPhase;
+import Engine.src.ECS.Collision.SweepAndPrune;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A generated level in the style of DefaultGame: one user, a long run of impassable blocks and a share of moving
+ * enemies that fall onto them. The level grows with the entity count so the density, and with it the number of
+ * collisions per entity, stays the same at every size.
+ */
+public class SyntheticWorld implements GameSource {
+    public static final int USER_ID = 0;
+    private static final String BLOCK_IMAGE = "/img/block.jpg";
+    private static final String USER_IMAGE = "/img/mario.png";
+    private static final double BLOCK_SPACING = 120;
+    private static final double LEVEL_HEIGHT = 800;
+    private static final double GRAVITY = 1;
+    private static final double MOVEMENT_VELOCITY = 10;
+
+    private final Map<Integer, Map<Class<? extends Component>, Component>> myActiveObjects;
+    private final int myEntityCount;
+    private final double myLevelWidth;
+    private final List<Integer> myMovingEntities;
+
+    /**
+     * @param movingFraction share of the entities that get a MotionComponent; the rest are static blocks
+     */
+    public SyntheticWorld(int entityCount, double movingFraction, long seed) {
+        myActiveObjects = new HashMap<>();
+        myMovingEntities = new ArrayList<>();
+        myEntityCount = entityCount;
+        myLevelWidth = Math.max(1, entityCount) * BLOCK_SPACING / 4;
+        Random random = new Random(seed);
+
+        makeUser();
+        for (int id = 1; id < entityCount; id++) {
+            double x = random.nextDouble() * myLevelWidth;
+            double y = random.nextDouble() * LEVEL_HEIGHT;
+            if (random.nextDouble() < movingFraction)
+                makeEnemy(id, x, y);
+            else
+                makeBlock(id, x, y, 50 + random.nextInt(150));
+        }
+    }
+
+    private void makeUser() {
+        Map<Class<? extends Component>, Component> user = new HashMap<>();
+        user.put(BasicComponent.class, new BasicComponent(USER_IMAGE, 50, 50, 30, 50));
+        user.put(MotionComponent.class, new MotionComponent(0, 0, 0, GRAVITY, 0, MOVEMENT_VELOCITY, 0));
+        user.put(JumpComponent.class, new JumpComponent(MOVEMENT_VELOCITY));
+        user.put(TagsComponent.class, new TagsComponent(List.of("USER")));
+        myActiveObjects.put(USER_ID, user);
+        myMovingEntities.add(USER_ID);
+    }
+
+    private void makeEnemy(int id, double x, double y) {
+        Map<Class<? extends Component>, Component> enemy = new HashMap<>();
+        enemy.put(BasicComponent.class, new BasicComponent(USER_IMAGE, x, y, 30, 50));
+        enemy.put(MotionComponent.class, new MotionComponent(0, 0, 0, GRAVITY, 0, MOVEMENT_VELOCITY, 0));
+        enemy.put(TagsComponent.class, new TagsComponent(List.of("ENEMY")));
+        myActiveObjects.put(id, enemy);
+        myMovingEntities.add(id);
+    }
+
+    private void makeBlock(int id, double x, double y, double width) {
+        Map<Class<? extends Component>, Component> block = new HashMap<>();
+        block.put(BasicComponent.class, new BasicComponent(BLOCK_IMAGE, x, y, width, 75));
+        block.put(ImpassableComponent.class, new ImpassableComponent(true));
+        block.put(TagsComponent.class, new TagsComponent(List.of("BLOCK")));
+        myActiveObjects.put(id, block);
+    }
+
+    @Override
+    public Map<Integer, Map<Class<? extends Component>, Component>> getActiveObjects() {
+        return myActiveObjects;
+    }
+
+    @Override
+    public BroadPhase getBroadPhase() {
+        return new SweepAndPrune();
+    }
+
+    public int getEntityCount() {
+        return myEntityCount;
+    }
+
+    public double getLevelWidth() {
+        return myLevelWidth;
+    }
+
+    public double getLevelHeight() {
+        return LEVEL_HEIGHT;
+    }
+
+    public List<Integer> getMovingEntities() {
+        return myMovingEntities;
+    }
+}
@@ -0,0 +1,88 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.Component;
+import Engine.src.Components.LogicComponent;
+import Engine.src.Components.MotionComponent;
+import Engine.src.Controller.ScriptCache;
+import Engine.src.ECS.AI;
+import Engine.src.ECS.AIScheduler;
+import Engine.src.ECS.EntityManager;
+import Engine.src.ECS.Navigation.NavigationService;
+import Engine.src.Utilities.GameRandom;
+import groovy.lang.Binding;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptLogicSystemTest {
+    private static final long SEED = 42;
+    //enough entities for the scheduler to split them across workers
+    private static final int ENTITY_COUNT = 200;
+    private static final int TICKS = 20;
+    private static final String DRAW_SCRIPT = "entityManager.setX(ID, random.forEntity(ID).nextDouble())";
+
+    @Test
+    void scriptsDrawSeededNumbersPerEntity() {
+        ScriptCache scriptCache = new ScriptCache();
+        EntityManager entityManager = new EntityManager(makeWorld(DRAW_SCRIPT), 1, scriptCache);
+        GameRandom random = new GameRandom(SEED);
+        random.nextTick();
+        Binding binding = new Binding();
+        binding.setProperty("entityManager", entityManager);
+        binding.setProperty("random", random);
+        SystemScheduler scheduler = new SystemScheduler(entityManager);
+        scheduler.addSystem(new ScriptLogicSystem(scriptCache, binding));
+
+        scheduler.run();
+
+        GameRandom expected = new GameRandom(SEED);
+        expected.nextTick();
+        for (int id = 0; id < ENTITY_COUNT; id++)
+            assertEquals(expected.forEntity(id).nextDouble(), entityManager.getComponent(id, BasicComponent.class).getX());
+    }
+
+    @Test
+    void aiDecidesOnWorkersAndMovesAtTheSyncPoint() {
+        ScriptCache scriptCache = new ScriptCache();
+        Map<Integer, Map<Class<? extends Component>, Component>> world = makeWorld("ai.follow(ID, 0)");
+        world.get(0).remove(LogicComponent.class);
+        world.get(0).put(BasicComponent.class, new BasicComponent("/img/block.jpg", 1000, 0, 1, 1));
+        for (int id = 1; id < ENTITY_COUNT; id++)
+            world.get(id).put(MotionComponent.class, new MotionComponent(0, 0, 0, 0, 0, 10, 0));
+        EntityManager entityManager = new EntityManager(world, 1, scriptCache);
+        AIScheduler aiScheduler = new AIScheduler(entityManager);
+        Binding binding = new Binding();
+        binding.setProperty("entityManager", entityManager);
+        binding.setProperty("ai", new AI(entityManager, new NavigationService(entityManager, 2000, 2 * ENTITY_COUNT),
+                aiScheduler, new GameRandom(SEED)));
+        SystemScheduler scheduler = new SystemScheduler(entityManager);
+        scheduler.addSystem(new ScriptLogicSystem(scriptCache, binding));
+
+        //a cold script may spend the AI's budget for the first ticks, leaving the rest of the entities for later ones
+        for (int tick = 0; tick < TICKS; tick++) {
+            aiScheduler.beginTick(0, 0, 1e9, 1e9);
+            entityManager.beginFrame();
+            scheduler.run();
+            entityManager.endFrame();
+        }
+
+        for (int id = 1; id < ENTITY_COUNT; id++)
+            assertTrue(entityManager.getComponent(id, BasicComponent.class).getX() > 0);
+    }
+
+    private static Map<Integer, Map<Class<? extends Component>, Component>> makeWorld(String logic) {
+        Map<Integer, Map<Class<? extends Component>, Component>> world = new HashMap<>();
+        for (int id = 0; id < ENTITY_COUNT; id++) {
+            Map<Class<? extends Component>, Component> entity = new HashMap<>();
+            entity.put(BasicComponent.class, new BasicComponent("/img/block.jpg", 0, 2 * id, 1, 1));
+            entity.put(LogicComponent.class, new LogicComponent(logic));
+            world.put(id, entity);
+        }
+        return world;
+    }
+}
@@ -0,0 +1,24 @@
+package Engine.src.Collections;
+
+/**
+ * Spreads primitive keys over a power-of-two table. Entity ids and grid cells are small and sequential, so using them
+ * as they are would pile neighbouring keys into neighbouring slots.
+ */
+final class HashMixer {
+    private static final int INT_PHI = 0x9E3779B9;
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private HashMixer() {
+    }
+
+    static int mix(int key) {
+        int hash = key * INT_PHI;
+        return hash ^ (hash >>> 16);
+    }
+
+    static int mix(long key) {
+        long hash = key * LONG_PHI;
+        hash ^= hash >>> 32;
+        return (int) (hash ^ (hash >>> 16));
+    }
+}
@@ -0,0 +1,217 @@
+package Engine.src.Collections;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys (usually entity ids) to objects that keeps its keys unboxed in one array. Open addressing with
+ * linear probing; a key of 0 marks an empty slot, so the entry for key 0 is held beside the table. Removal shifts later
+ * entries back instead of leaving tombstones, so lookups never slow down as entries come and go.
+ *
+ * Not thread safe, and must not be changed from inside forEach.
+ */
+public class IntObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] myKeys;
+    private V[] myValues;
+    private int myMask;
+    private int myMaxFill;
+    private int mySize;
+    private boolean myHasZeroKey;
+    private V myZeroValue;
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public V get(int key) {
+        if (key == 0)
+            return myHasZeroKey ? myZeroValue : null;
+        int slot = find(key);
+        return slot < 0 ? null : myValues[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? myHasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @return the value previously mapped to key, or null if there was none
+     */
+    public V put(int key, V value) {
+        if (key == 0) {
+            V previous = myZeroValue;
+            if (!myHasZeroKey)
+                mySize++;
+            myHasZeroKey = true;
+            myZeroValue = value;
+            return previous;
+        }
+        int slot = HashMixer.mix(key) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == key) {
+                V previous = myValues[slot];
+                myValues[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & myMask;
+        }
+        myKeys[slot] = key;
+        myValues[slot] = value;
+        if (++mySize > myMaxFill)
+            rehash(2 * myKeys.length);
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to key, or null if there was none
+     */
+    public V remove(int key) {
+        if (key == 0) {
+            if (!myHasZeroKey)
+                return null;
+            V previous = myZeroValue;
+            myHasZeroKey = false;
+            myZeroValue = null;
+            mySize--;
+            return previous;
+        }
+        int slot = find(key);
+        if (slot < 0)
+            return null;
+        V previous = myValues[slot];
+        removeSlot(slot);
+        return previous;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    public void clear() {
+        if (mySize == 0)
+            return;
+        Arrays.fill(myKeys, 0);
+        Arrays.fill(myValues, null);
+        myHasZeroKey = false;
+        myZeroValue = null;
+        mySize = 0;
+    }
+
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (myHasZeroKey)
+            consumer.accept(0, myZeroValue);
+        for (int slot = 0; slot < myKeys.length; slot++) {
+            if (myKeys[slot] != 0)
+                consumer.accept(myKeys[slot], myValues[slot]);
+        }
+    }
+
+    /**
+     * Removes every entry the predicate accepts. An entry the predicate keeps may be offered to it again, since removals
+     * shift entries between slots
+     */
+    public void removeIf(EntryPredicate<? super V> predicate) {
+        if (myHasZeroKey && predicate.test(0, myZeroValue))
+            remove(0);
+        int slot = 0;
+        while (slot < myKeys.length) {
+            //removing shifts a later entry into this slot, so it is looked at again
+            if (myKeys[slot] != 0 && predicate.test(myKeys[slot], myValues[slot]))
+                removeSlot(slot);
+            else
+                slot++;
+        }
+    }
+
+    /**
+     * @return a copy of the keys, in no particular order
+     */
+    public int[] keys() {
+        int[] keys = new int[mySize];
+        int count = 0;
+        if (myHasZeroKey)
+            keys[count++] = 0;
+        for (int key : myKeys) {
+            if (key != 0)
+                keys[count++] = key;
+        }
+        return keys;
+    }
+
+    private int find(int key) {
+        int slot = HashMixer.mix(key) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == key)
+                return slot;
+            slot = (slot + 1) & myMask;
+        }
+        return -1;
+    }
+
+    //backward-shift deletion: entries after the hole that probed past it move up so no probe chain is broken
+    private void removeSlot(int hole) {
+        mySize--;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & myMask;
+            int key = myKeys[slot];
+            if (key == 0)
+                break;
+            int home = HashMixer.mix(key) & myMask;
+            if (((slot - home) & myMask) >= ((slot - hole) & myMask)) {
+                myKeys[hole] = key;
+                myValues[hole] = myValues[slot];
+                hole = slot;
+            }
+        }
+        myKeys[hole] = 0;
+        myValues[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = myKeys;
+        V[] oldValues = myValues;
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            int key = oldKeys[oldSlot];
+            if (key == 0)
+                continue;
+            int slot = HashMixer.mix(key) & myMask;
+            while (myKeys[slot] != 0)
+                slot = (slot + 1) & myMask;
+            myKeys[slot] = key;
+            myValues[slot] = oldValues[oldSlot];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        myKeys = new int[capacity];
+        myValues = (V[]) new Object[capacity];
+        myMask = capacity - 1;
+        myMaxFill = (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    public interface EntryPredicate<V> {
+        boolean test(int key, V value);
+    }
+}
@@ -0,0 +1,146 @@
+package Engine.src.Collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints kept unboxed in an open-addressing table, laid out like IntObjectMap without the values.
+ *
+ * Not thread safe, and must not be changed from inside forEach.
+ */
+public class IntSet {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] myKeys;
+    private int myMask;
+    private int myMaxFill;
+    private int mySize;
+    private boolean myHasZero;
+
+    public IntSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntSet(int expectedSize) {
+        allocate(IntObjectMap.tableSizeFor(expectedSize));
+    }
+
+    public boolean contains(int value) {
+        if (value == 0)
+            return myHasZero;
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value)
+                return true;
+            slot = (slot + 1) & myMask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value was not already in the set
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            if (myHasZero)
+                return false;
+            myHasZero = true;
+            mySize++;
+            return true;
+        }
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value)
+                return false;
+            slot = (slot + 1) & myMask;
+        }
+        myKeys[slot] = value;
+        if (++mySize > myMaxFill)
+            rehash(2 * myKeys.length);
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        if (value == 0) {
+            if (!myHasZero)
+                return false;
+            myHasZero = false;
+            mySize--;
+            return true;
+        }
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value) {
+                removeSlot(slot);
+                return true;
+            }
+            slot = (slot + 1) & myMask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    public void clear() {
+        if (mySize == 0)
+            return;
+        Arrays.fill(myKeys, 0);
+        myHasZero = false;
+        mySize = 0;
+    }
+
+    public void forEach(IntConsumer consumer) {
+        if (myHasZero)
+            consumer.accept(0);
+        for (int key : myKeys) {
+            if (key != 0)
+                consumer.accept(key);
+        }
+    }
+
+    private void removeSlot(int hole) {
+        mySize--;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & myMask;
+            int key = myKeys[slot];
+            if (key == 0)
+                break;
+            int home = HashMixer.mix(key) & myMask;
+            if (((slot - home) & myMask) >= ((slot - hole) & myMask)) {
+                myKeys[hole] = key;
+                hole = slot;
+            }
+        }
+        myKeys[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = myKeys;
+        allocate(capacity);
+        for (int key : oldKeys) {
+            if (key == 0)
+                continue;
+            int slot = HashMixer.mix(key) & myMask;
+            while (myKeys[slot] != 0)
+                slot = (slot + 1) & myMask;
+            myKeys[slot] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        myKeys = new int[capacity];
+        myMask = capacity - 1;
+        myMaxFill = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,170 @@
+package Engine.src.Collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A map from long keys (e.g. packed grid coordinates) to objects, laid out like IntObjectMap.
+ *
+ * Not thread safe, and must not be changed from inside forEachValue.
+ */
+public class LongObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] myKeys;
+    private V[] myValues;
+    private int myMask;
+    private int myMaxFill;
+    private int mySize;
+    private boolean myHasZeroKey;
+    private V myZeroValue;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(IntObjectMap.tableSizeFor(expectedSize));
+    }
+
+    public V get(long key) {
+        if (key == 0)
+            return myHasZeroKey ? myZeroValue : null;
+        int slot = find(key);
+        return slot < 0 ? null : myValues[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? myHasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @return the value previously mapped to key, or null if there was none
+     */
+    public V put(long key, V value) {
+        if (key == 0) {
+            V previous = myZeroValue;
+            if (!myHasZeroKey)
+                mySize++;
+            myHasZeroKey = true;
+            myZeroValue = value;
+            return previous;
+        }
+        int slot = HashMixer.mix(key) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == key) {
+                V previous = myValues[slot];
+                myValues[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & myMask;
+        }
+        myKeys[slot] = key;
+        myValues[slot] = value;
+        if (++mySize > myMaxFill)
+            rehash(2 * myKeys.length);
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to key, or null if there was none
+     */
+    public V remove(long key) {
+        if (key == 0) {
+            if (!myHasZeroKey)
+                return null;
+            V previous = myZeroValue;
+            myHasZeroKey = false;
+            myZeroValue = null;
+            mySize--;
+            return previous;
+        }
+        int slot = find(key);
+        if (slot < 0)
+            return null;
+        V previous = myValues[slot];
+        removeSlot(slot);
+        return previous;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    public void clear() {
+        if (mySize == 0)
+            return;
+        Arrays.fill(myKeys, 0);
+        Arrays.fill(myValues, null);
+        myHasZeroKey = false;
+        myZeroValue = null;
+        mySize = 0;
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        if (myHasZeroKey)
+            consumer.accept(myZeroValue);
+        for (int slot = 0; slot < myKeys.length; slot++) {
+            if (myKeys[slot] != 0)
+                consumer.accept(myValues[slot]);
+        }
+    }
+
+    private int find(long key) {
+        int slot = HashMixer.mix(key) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == key)
+                return slot;
+            slot = (slot + 1) & myMask;
+        }
+        return -1;
+    }
+
+    private void removeSlot(int hole) {
+        mySize--;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & myMask;
+            long key = myKeys[slot];
+            if (key == 0)
+                break;
+            int home = HashMixer.mix(key) & myMask;
+            if (((slot - home) & myMask) >= ((slot - hole) & myMask)) {
+                myKeys[hole] = key;
+                myValues[hole] = myValues[slot];
+                hole = slot;
+            }
+        }
+        myKeys[hole] = 0;
+        myValues[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = myKeys;
+        V[] oldValues = myValues;
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            long key = oldKeys[oldSlot];
+            if (key == 0)
+                continue;
+            int slot = HashMixer.mix(key) & myMask;
+            while (myKeys[slot] != 0)
+                slot = (slot + 1) & myMask;
+            myKeys[slot] = key;
+            myValues[slot] = oldValues[oldSlot];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        myKeys = new long[capacity];
+        myValues = (V[]) new Object[capacity];
+        myMask = capacity - 1;
+        myMaxFill = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,163 @@
+package Engine.src.Collections;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of longs kept unboxed in an open-addressing table, laid out like IntSet. Mostly used for pairs of entity ids
+ * packed into one long with pair(first, second), so a whole frame's worth of contacts is one array with no per-pair
+ * objects.
+ *
+ * Not thread safe, and must not be changed from inside forEach.
+ */
+public class LongSet {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] myKeys;
+    private int myMask;
+    private int myMaxFill;
+    private int mySize;
+    private boolean myHasZero;
+
+    public LongSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongSet(int expectedSize) {
+        allocate(IntObjectMap.tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return the ordered pair (first, second) packed into one long; pair(a, b) and pair(b, a) differ
+     */
+    public static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0)
+            return myHasZero;
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value)
+                return true;
+            slot = (slot + 1) & myMask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value was not already in the set
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (myHasZero)
+                return false;
+            myHasZero = true;
+            mySize++;
+            return true;
+        }
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value)
+                return false;
+            slot = (slot + 1) & myMask;
+        }
+        myKeys[slot] = value;
+        if (++mySize > myMaxFill)
+            rehash(2 * myKeys.length);
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!myHasZero)
+                return false;
+            myHasZero = false;
+            mySize--;
+            return true;
+        }
+        int slot = HashMixer.mix(value) & myMask;
+        while (myKeys[slot] != 0) {
+            if (myKeys[slot] == value) {
+                removeSlot(slot);
+                return true;
+            }
+            slot = (slot + 1) & myMask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    public void clear() {
+        if (mySize == 0)
+            return;
+        Arrays.fill(myKeys, 0);
+        myHasZero = false;
+        mySize = 0;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        if (myHasZero)
+            consumer.accept(0);
+        for (long key : myKeys) {
+            if (key != 0)
+                consumer.accept(key);
+        }
+    }
+
+    private void removeSlot(int hole) {
+        mySize--;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & myMask;
+            long key = myKeys[slot];
+            if (key == 0)
+                break;
+            int home = HashMixer.mix(key) & myMask;
+            if (((slot - home) & myMask) >= ((slot - hole) & myMask)) {
+                myKeys[hole] = key;
+                hole = slot;
+            }
+        }
+        myKeys[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = myKeys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key == 0)
+                continue;
+            int slot = HashMixer.mix(key) & myMask;
+            while (myKeys[slot] != 0)
+                slot = (slot + 1) & myMask;
+            myKeys[slot] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        myKeys = new long[capacity];
+        myMask = capacity - 1;
+        myMaxFill = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -1,55 +1,53 @@
 package Engine.src.Components;
 
-public class BasicComponent extends Component {
-    private double myWidth;
-    private double myHeight;
-    private double myXPos;
-    private double myYPos;
+public class BasicComponent extends PackedComponent {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int WIDTH = 2;
+    public static final int HEIGHT = 3;
+    public static final int FIELD_COUNT = 4;
+
     private String myFilename;
     private int myZIndex;
 
     public BasicComponent(String filename, double xPos, double yPos, double width, double height, int zIndex) {
-        myFilename = filename;
-        myXPos = xPos;
-        myYPos = yPos;
-        myWidth = width;
-        myHeight = height;
+        this(filename, xPos, yPos, width, height);
         myZIndex = zIndex;
     }
 
     public BasicComponent(String filename, double xPos, double yPos, double width, double height) {
+        super(FIELD_COUNT);
         myFilename = filename;
-        myXPos = xPos;
-        myYPos = yPos;
-        myWidth = width;
-        myHeight = height;
-
+        write(X, xPos);
+        write(Y, yPos);
+        write(WIDTH, width);
+        write(HEIGHT, height);
     }
 
 
     public double getWidth() {
-        return myWidth;
+        return read(WIDTH);
     }
 
     public double getHeight() {
-        return myHeight;
+        return read(HEIGHT);
     }
 
     public void setWidth(double myWidth) {
-        this.myWidth = myWidth;
+        write(WIDTH, myWidth);
     }
 
     public void setHeight(double myHeight) {
-        this.myHeight = myHeight;
+        write(HEIGHT, myHeight);
     }
 
-    public double getX() { return myXPos; }
+    public double getX() { return read(X); }
 
-    public double getY() { return myYPos; }
+    public double getY() { return read(Y); }
 
-    public void setX(double xPos) { this.myXPos = xPos; }
+    public void setX(double xPos) { write(X, xPos); }
 
-    public void setY(double yPos) { this.myYPos = yPos; }
+    public void setY(double yPos) { write(Y, yPos); }
 
     public String getMyFilename() {
         return myFilename;
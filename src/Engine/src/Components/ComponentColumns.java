@@ -0,0 +1,39 @@
+package Engine.src.Components;
+
+import java.util.Arrays;
+
+/**
+ * Primitive storage for the numeric fields of one PackedComponent type, one double[] per field with one row per entity.
+ * Systems that only need positions or velocities can loop over these arrays directly.
+ */
+public class ComponentColumns {
+    private double[][] myFields;
+
+    public ComponentColumns(int fieldCount, int capacity) {
+        myFields = new double[fieldCount][capacity];
+    }
+
+    public double[] getColumn(int field) {
+        return myFields[field];
+    }
+
+    public double get(int field, int row) {
+        return myFields[field][row];
+    }
+
+    public void set(int field, int row, double value) {
+        myFields[field][row] = value;
+    }
+
+    public void copyRow(int fromRow, int toRow) {
+        for (double[] field : myFields)
+            field[toRow] = field[fromRow];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (myFields.length == 0 || myFields[0].length >= capacity)
+            return;
+        for (int k = 0; k < myFields.length; k++)
+            myFields[k] = Arrays.copyOf(myFields[k], capacity);
+    }
+}
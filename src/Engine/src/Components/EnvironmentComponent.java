@@ -8,7 +8,7 @@ public class EnvironmentComponent extends Component{
 
     public EnvironmentComponent(double accelX, double accelY, double velDampener, double friction) {
         myAccelX = accelX;
-        myAccelX = accelY;
+        myAccelY = accelY;
         myVelDampener = velDampener;
         myFriction = friction;
     }
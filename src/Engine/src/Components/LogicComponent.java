@@ -1,5 +1,12 @@
 package Engine.src.Components;
 
+/**
+ * A Groovy script run for the entity every tick, with the entity's id bound as ID. Scripts of many entities run at once
+ * (see ScriptLogicSystem), so they read the world and leave their changes to be made after all have run: components
+ * from entityManager.getComponent are read only, and calls that would change something and return a value, such as
+ * entityManager.create(components), throw UnsupportedOperationException. Change things through methods returning
+ * void, e.g. entityManager.setXVelocity(ID, velocity) or ai.follow(ID, targetID).
+ */
 public class LogicComponent extends Component{
 
     private String myLogic;
@@ -1,30 +1,37 @@
 package Engine.src.Components;
 
+import Engine.src.Utilities.VectorMath;
+
 /**
- * Assumes time step is 1 (multiplies velocity by 1 when returning new position or acceleration by 1 when updating velocity)
+ * Velocities are in pixels per tick and accelerations in pixels per tick squared, where a tick is one step at
+ * Integrator.REFERENCE_TICKS_PER_SECOND; methods that move or accelerate take the time step dt in those ticks.
+ * Speeds are limited to the maximum velocities in both directions.
  */
-public class MotionComponent extends Component {
-    private static final double MAX_X_VELOCITY = 20;
-    private static final double MAX_Y_VELOCITY = 20;
-    public static final double SQUARE_ROOT = .5;
-    public static final int SQUARE = 2;
-
-    private double myXVelocity;
-    private double myYVelocity;
-    private double myXAcceleration;
-    private double myYAcceleration;
+public class MotionComponent extends PackedComponent {
+    private static final double DEFAULT_MAX_X_VELOCITY = 20;
+    private static final double DEFAULT_MAX_Y_VELOCITY = 20;
+
+    public static final int X_VELOCITY = 0;
+    public static final int Y_VELOCITY = 1;
+    public static final int X_ACCELERATION = 2;
+    public static final int Y_ACCELERATION = 3;
+    public static final int MAX_X_VELOCITY = 4;
+    public static final int MAX_Y_VELOCITY = 5;
+    public static final int FIELD_COUNT = 6;
+
     private double myAngle;
-    private double myMaxXVelocity = MAX_X_VELOCITY;
-    private double myMaxYVelocity = MAX_Y_VELOCITY;
     private double myMovementXVelocity;
     private double myMovementYVelocity;
 
     public MotionComponent(double xVelocity, double yVelocity, double xAcceleration, double yAcceleration, double angle,
                            double movementXVelocity, double movementYVelocity) {
-        this.myXVelocity = xVelocity;
-        this.myYVelocity = yVelocity;
-        this.myXAcceleration = xAcceleration;
-        this.myYAcceleration = yAcceleration;
+        super(FIELD_COUNT);
+        write(X_VELOCITY, xVelocity);
+        write(Y_VELOCITY, yVelocity);
+        write(X_ACCELERATION, xAcceleration);
+        write(Y_ACCELERATION, yAcceleration);
+        write(MAX_X_VELOCITY, DEFAULT_MAX_X_VELOCITY);
+        write(MAX_Y_VELOCITY, DEFAULT_MAX_Y_VELOCITY);
         this.myAngle = angle;
         this.myMovementXVelocity = movementXVelocity;
         this.myMovementYVelocity = movementYVelocity;
@@ -47,35 +54,35 @@ public class MotionComponent extends Component {
     }
 
     public double getXVelocity() {
-        return myXVelocity;
+        return read(X_VELOCITY);
     }
 
     public void setXVelocity(double xVelocity) {
-        this.myXVelocity = xVelocity;
+        write(X_VELOCITY, xVelocity);
     }
 
     public double getYVelocity() {
-        return myYVelocity;
+        return read(Y_VELOCITY);
     }
 
     public void setYVelocity(double yVelocity) {
-        this.myYVelocity = yVelocity;
+        write(Y_VELOCITY, yVelocity);
     }
 
     public double getXAcceleration() {
-        return myXAcceleration;
+        return read(X_ACCELERATION);
     }
 
     public void setXAcceleration(double xAcceleration) {
-        this.myXAcceleration = xAcceleration;
+        write(X_ACCELERATION, xAcceleration);
     }
 
     public double getYAcceleration() {
-        return myYAcceleration;
+        return read(Y_ACCELERATION);
     }
 
     public void setYAcceleration(double yAcceleration) {
-        this.myYAcceleration = yAcceleration;
+        write(Y_ACCELERATION, yAcceleration);
     }
 
     public double getAngle() {
@@ -83,25 +90,50 @@ public class MotionComponent extends Component {
     }
 
     public double getVelocity(){
-        return Math.pow(Math.pow(myXVelocity, SQUARE) + Math.pow(myYVelocity, SQUARE), SQUARE_ROOT);
+        return VectorMath.length(getXVelocity(), getYVelocity());
     }
 
     public double getMovementVelocity(){
-        return Math.pow(Math.pow(myMovementXVelocity, SQUARE) + Math.pow(myMovementYVelocity, SQUARE), SQUARE_ROOT);
+        return VectorMath.length(myMovementXVelocity, myMovementYVelocity);
+    }
+
+    /**
+     * Accelerates for dt ticks; the Integrator does the same for whole archetypes at once
+     */
+    public void updateVelocity(double dt) {
+        setXVelocity(clamp(getXVelocity() + getXAcceleration() * dt, getMaxXVelocity()));
+        setYVelocity(clamp(getYVelocity() + getYAcceleration() * dt, getMaxYVelocity()));
+    }
+
+    /**
+     * @return the velocity limited to [-max, max]
+     */
+    public static double clamp(double velocity, double max) {
+        return Math.max(-max, Math.min(max, velocity));
+    }
+
+    public double getMaxXVelocity() {
+        return read(MAX_X_VELOCITY);
+    }
+
+    public void setMaxXVelocity(double maxXVelocity) {
+        write(MAX_X_VELOCITY, maxXVelocity);
     }
 
-    //Should put the three methods below into entitymanager?
-    public void updateVelocity() {
-        myXVelocity = Math.min(myXVelocity += myXAcceleration, myMaxXVelocity);
-        myYVelocity = Math.min(myYVelocity += myYAcceleration, myMaxYVelocity);
+    public double getMaxYVelocity() {
+        return read(MAX_Y_VELOCITY);
     }
 
-    public double getNewX(double x) {
-        return x + myXVelocity;
+    public void setMaxYVelocity(double maxYVelocity) {
+        write(MAX_Y_VELOCITY, maxYVelocity);
     }
 
-    public double getNewY(double y) {
-        return y + myYVelocity;
+    public double getNewX(double x, double dt) {
+        return x + getXVelocity() * dt;
+    }
+
+    public double getNewY(double y, double dt) {
+        return y + getYVelocity() * dt;
     }
 
     public void adjustDirection(double delta) {
@@ -114,17 +146,10 @@ public class MotionComponent extends Component {
         adjustVelocitiesByAngle(myAngle);
     }
 
+    //keeps the speed, turning it to the angle in degrees
     private void adjustVelocitiesByAngle(double angle) {
-        double[] directionVec = calculateDirection(myAngle);
-        double totalVel = myXVelocity*myXVelocity + myYVelocity*myYVelocity;
-        myXVelocity = totalVel * directionVec[0];
-        myYVelocity = totalVel * directionVec[1];
-    }
-
-    private double[] calculateDirection(double angle){
-        double[] directionVec = new double[SQUARE];
-        directionVec[0] = Math.cos(Math.toRadians(angle));
-        directionVec[1] = Math.sin(Math.toRadians(angle));
-        return directionVec;
+        double speed = getVelocity();
+        setXVelocity(speed * Math.cos(Math.toRadians(angle)));
+        setYVelocity(speed * Math.sin(Math.toRadians(angle)));
     }
 }
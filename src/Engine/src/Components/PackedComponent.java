@@ -0,0 +1,52 @@
+package Engine.src.Components;
+
+/**
+ * A component whose numeric fields live in the ComponentColumns of the archetype holding its entity.
+ * Until the component is attached (and again after it is detached) the fields are kept in the component itself,
+ * so getters and setters behave the same whether or not the entity is in the engine.
+ */
+public abstract class PackedComponent extends Component {
+    private double[] myLocalFields;
+    private ComponentColumns myColumns;
+    private int myRow;
+
+    protected PackedComponent(int fieldCount) {
+        myLocalFields = new double[fieldCount];
+    }
+
+    protected double read(int field) {
+        if (myColumns == null)
+            return myLocalFields[field];
+        return myColumns.get(field, myRow);
+    }
+
+    protected void write(int field, double value) {
+        if (myColumns == null)
+            myLocalFields[field] = value;
+        else
+            myColumns.set(field, myRow, value);
+    }
+
+    public int getFieldCount() {
+        return myLocalFields.length;
+    }
+
+    public void attach(ComponentColumns columns, int row) {
+        for (int field = 0; field < myLocalFields.length; field++)
+            columns.set(field, row, myLocalFields[field]);
+        myColumns = columns;
+        myRow = row;
+    }
+
+    public void moveTo(int row) {
+        myRow = row;
+    }
+
+    public void detach() {
+        if (myColumns == null)
+            return;
+        for (int field = 0; field < myLocalFields.length; field++)
+            myLocalFields[field] = myColumns.get(field, myRow);
+        myColumns = null;
+    }
+}
@@ -0,0 +1,35 @@
+package Engine.src.Components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns tag strings to small integer ids so tag checks in the collision loop compare ints instead of strings.
+ */
+public final class TagRegistry {
+    private static final Map<String, Integer> IDS = new HashMap<>();
+    private static final List<String> TAGS = new ArrayList<>();
+
+    private TagRegistry() {
+    }
+
+    public static synchronized int idOf(String tag) {
+        Integer id = IDS.get(tag);
+        if (id == null) {
+            id = TAGS.size();
+            IDS.put(tag, id);
+            TAGS.add(tag);
+        }
+        return id;
+    }
+
+    public static synchronized String tagOf(int id) {
+        return TAGS.get(id);
+    }
+
+    public static synchronized int count() {
+        return TAGS.size();
+    }
+}
@@ -1,13 +1,18 @@
 package Engine.src.Components;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
 public class TagsComponent extends Component {
     private List<String> myTags;
+    private BitSet myTagIDs;
 
     public TagsComponent(List<String> tags) {
         myTags = tags;
+        myTagIDs = new BitSet();
+        for (String tag : tags)
+            myTagIDs.set(TagRegistry.idOf(tag));
     }
 
     public List<String> getTags() {
@@ -17,4 +22,15 @@ public class TagsComponent extends Component {
     public boolean contains(String tag){
         return myTags.contains(tag);
     }
+
+    public boolean hasTagID(int tagID) {
+        return myTagIDs.get(tagID);
+    }
+
+    /**
+     * @return the smallest tag id of this entity that is at least fromID, or -1 if there is none
+     */
+    public int nextTagID(int fromID) {
+        return myTagIDs.nextSetBit(fromID);
+    }
 }
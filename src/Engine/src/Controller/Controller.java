@@ -1,16 +1,25 @@
 package Engine.src.Controller;
 
+import Engine.src.Collections.IntObjectMap;
 import Engine.src.Components.*;
 import Engine.src.ECS.AI;
+import Engine.src.ECS.AIScheduler;
+import Engine.src.ECS.Archetype;
+import Engine.src.ECS.ArchetypeStorage;
+import Engine.src.ECS.Collision.BroadPhase;
 import Engine.src.ECS.CollisionHandler;
 import Engine.src.ECS.EntityManager;
+import Engine.src.ECS.Integrator;
+import Engine.src.ECS.Navigation.NavigationService;
 import Engine.src.ECS.Pair;
+import Engine.src.ECS.Systems.ScriptLogicSystem;
+import Engine.src.ECS.Systems.SystemScheduler;
 import Engine.src.Triggers.Timer;
 import Engine.src.Triggers.TimerSequence;
+import Engine.src.Utilities.GameRandom;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import groovy.lang.Script;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +33,7 @@ public class Controller {
     private static final double CHARACTER_DISTANCE_FROM_SCROLL_WALL = 20; //if auto scroller
     private static final double START_X = 0;
     private static final double START_Y = 0;
+    private static final double VIEW_MARGIN = 200;                        //entities this far off screen are still drawn
     //FIXME remove eventually
 
     private final double myScreenWidth;
@@ -31,9 +41,8 @@ public class Controller {
 
     private Map<String, String> myHotKeys;
     private List<TimerSequence> myTimerSequences;
-    private Map<Integer, Timer> myTimers;
+    private IntObjectMap<Timer> myTimers;
     private Map<Pair<String>, Pair<String>> myCollisionResponses;
-    private Map<Integer, Map<Class<? extends Component>, Component>> myActiveObjects;
     private String myTriggers;
 
     private int myUserID;
@@ -45,23 +54,46 @@ public class Controller {
     private EntityManager myEntityManager;
     private LevelManager myLevelManager;
     private AI myAI;
+    private NavigationService myNavigation;
+    private AIScheduler myAIScheduler;
+    private GameRandom myRandom;
 
+    private ScriptCache myScriptCache;
+    private StageRecorder myStageRecorder;
+    private SystemScheduler mySystemScheduler;
     private Binding myBinding;
 
     public Controller(double stepTime, double screenWidth, double screenHeight, double levelWidth, double levelHeight) {
+        this(new DefaultGame(), stepTime, screenWidth, screenHeight, levelWidth, levelHeight); //FIXME remove for non default, hardcoded game
+    }
+
+    public Controller(GameSource game, double stepTime, double screenWidth, double screenHeight, double levelWidth,
+                      double levelHeight) {
         myHotKeys = new HashMap<>();
-        myTimers = new HashMap<>();
+        myTimers = new IntObjectMap<>();
+        myTimerSequences = new ArrayList<>();
         myCollisionResponses = new HashMap<>();
         myTriggers = "";
         myStepTime = stepTime;
         myScreenWidth = screenWidth;
         myScreenHeight = screenHeight;
+        myBinding = new Binding();
+        myScriptCache = new ScriptCache();
+        myIterationCounter = 0;
         //myDataManager = new DataManager();
-        initializeDataVariables();
+        initializeDataVariables(game);
         myLevelManager = new LevelManager(myTimers, myTimerSequences, myEntityManager, myIterationCounter, levelWidth, levelHeight);
-        myEntityManager = new EntityManager(myActiveObjects, myStepTime);
         myCollisionHandler = new CollisionHandler(myEntityManager, myLevelManager);
-        myIterationCounter = 0;
+        myNavigation = new NavigationService(myEntityManager, levelWidth, levelHeight);
+        myAIScheduler = new AIScheduler(myEntityManager);
+        myRandom = new GameRandom(GameRandom.DEFAULT_SEED);
+        myAI = new AI(myEntityManager, myNavigation, myAIScheduler, myRandom);
+        myBinding.setProperty("ai", myAI);
+        myBinding.setProperty("random", myRandom);
+        myCollisionHandler.setCollisionResponses(myCollisionResponses);
+        myBinding.setProperty("collisionHandler", myCollisionHandler);
+        mySystemScheduler = new SystemScheduler(myEntityManager);
+        mySystemScheduler.addSystem(new ScriptLogicSystem(myScriptCache, myBinding));
 
         setDefaultKeys();
         setDefaultTriggers();
@@ -69,24 +101,30 @@ public class Controller {
     }
 
     //FIXME??
-    public void initializeDataVariables() {
-        myActiveObjects = new DefaultGame().getActiveObjects(); //FIXME remove for non default, hardcoded game
+    public void initializeDataVariables(GameSource game) {
+        myEntityManager = new EntityManager(game.getActiveObjects(), myStepTime, myScriptCache);
+        myEntityManager.setBroadPhase(game.getBroadPhase());
         //myCollisionResponses = new DefaultGame().getCollisionMap();
         //myActiveObjects = myDataManager.loadDefaultObjects();
         //myHotKeys = myDataManager.loadHotKeyMap();
         //myCollisionResponses = myDataManager.loadCollisionResponseMap();
         //myTimers = myDataManager.loadTimerMap();
         //myTriggers = myDataManager.loadTriggers();
-        myAI = new AI(myEntityManager);
-        for (int id : myActiveObjects.keySet()) {
-            Component type = myActiveObjects.get(id).get(TagsComponent.class);
-            if (((TagsComponent) type).contains("USER")) {
-                myUserID = id;
-                break;
+        myUserID = findUser();
+        myBinding.setProperty("entityManager", myEntityManager);
+    }
+
+    private int findUser() {
+        for (Archetype archetype : myEntityManager.getStorage().getArchetypes()) {
+            Component[] tags = archetype.getComponents(TagsComponent.class);
+            if (tags == null)
+                continue;
+            for (int row = 0; row < archetype.size(); row++) {
+                if (((TagsComponent) tags[row]).contains("USER"))
+                    return archetype.getEntity(row);
             }
         }
-        myBinding.setProperty("entityManager", myEntityManager);
-        myBinding.setProperty("collisionHandler", myCollisionHandler);
+        return -1;
     }
 
     private void setDefaultKeys() {
@@ -111,37 +149,55 @@ public class Controller {
     public void processKey(String key) {
         if (myHotKeys.containsKey(key)) {
             String event = myHotKeys.get(key);
-            GroovyShell shell = new GroovyShell(myBinding);
             myBinding.setProperty("ID", myUserID);
-            Script script = shell.parse(event);
-            script.run();
+            myScriptCache.run(event, myBinding);
         } else ; //TODO:error
     }
 
     public void updateScene() {
-        GroovyShell shell = new GroovyShell();
-        Script script = shell.parse(myTriggers);
-        script.run();
-        executeEntityLogic();
-        myLevelManager.updateTimers();
-        myLevelManager.updateSequences();
-        myCollisionHandler.handleCollisions(myActiveObjects.keySet(), myCollisionResponses);
+        if (myStageRecorder != null)
+            myStageRecorder.beginTick();
+        myEntityManager.beginFrame();
+        //a stage that throws still ends the frame, or every structural change after it would stay queued for good
+        try {
+            myRandom.nextTick();
+            myScriptCache.run(myTriggers, myBinding);
+            endStage(UpdateStage.TRIGGERS);
+            myNavigation.update();
+            endStage(UpdateStage.NAVIGATION);
+            executeEntityLogic();
+            endStage(UpdateStage.ENTITY_LOGIC);
+            myLevelManager.updateTimers();
+            endStage(UpdateStage.TIMERS);
+            myLevelManager.updateSequences();
+            endStage(UpdateStage.SEQUENCES);
+            myCollisionHandler.handleCollisions();
+            endStage(UpdateStage.COLLISIONS);
+        }
+        finally {
+            myEntityManager.endFrame();
+        }
+        endStage(UpdateStage.STRUCTURAL_CHANGES);
         myOffset = updateOffset();
+        endStage(UpdateStage.OFFSET);
+        if (myStageRecorder != null)
+            myStageRecorder.endTick();
+    }
+
+    private void endStage(UpdateStage stage) {
+        if (myStageRecorder != null)
+            myStageRecorder.endStage(stage);
     }
 
+    //LogicComponent scripts run in parallel through the scheduler; their changes are applied once all have run. AI
+    //decisions are rationed by distance from the view the player saw last tick
     private void executeEntityLogic() {
-        GroovyShell shell = new GroovyShell(myBinding);
-        for (int entityID : myActiveObjects.keySet()) {
-            LogicComponent logicComponent = myEntityManager.getComponent(entityID, LogicComponent.class);
-            String logic = logicComponent.getLogic();
-            myBinding.setProperty("ID", entityID);
-            Script script = shell.parse(logic);
-            script.run();
-        }
+        myAIScheduler.beginTick(myOffset[0], myOffset[1], myScreenWidth, myScreenHeight);
+        mySystemScheduler.run();
     }
 
     private double[] updateOffset() {
-        BasicComponent basic = (BasicComponent) myActiveObjects.get(myUserID).get(BasicComponent.class);
+        BasicComponent basic = myEntityManager.getComponent(myUserID, BasicComponent.class);
         double userX = basic.getX();
         double userY = basic.getY();
         double userWidth = basic.getWidth();
@@ -153,8 +209,16 @@ public class Controller {
         return myOffset;
     }
 
-    public Map<Integer, Map<Class<? extends Component>, Component>> getEntities() {
-        return myActiveObjects;
+    /**
+     * @return the entities on screen, plus a margin so they do not pop in while scrolling
+     */
+    public RenderSnapshot captureSnapshot(long tick) {
+        return RenderSnapshot.capture(myEntityManager, myOffset, tick, myUserID, myOffset[0] - VIEW_MARGIN,
+                myOffset[1] - VIEW_MARGIN, myScreenWidth + 2 * VIEW_MARGIN, myScreenHeight + 2 * VIEW_MARGIN);
+    }
+
+    public ArchetypeStorage getEntities() {
+        return myEntityManager.getStorage();
     }
 
     public double getScore(int entityID) {
@@ -162,6 +226,57 @@ public class Controller {
         return score.getScore();
     }
 
+    /**
+     * Swaps the collision broad phase, e.g. SpatialHash for open levels or SweepAndPrune for long scrolling ones
+     */
+    public void setBroadPhase(BroadPhase broadPhase) {
+        myEntityManager.setBroadPhase(broadPhase);
+    }
+
+    /**
+     * Scales motion so the game plays at the same speed whatever rate updateScene is called at
+     */
+    public void setTicksPerSecond(double ticksPerSecond) {
+        myEntityManager.setDeltaTime(Integrator.REFERENCE_TICKS_PER_SECOND / ticksPerSecond);
+    }
+
+    /**
+     * Seeds the random numbers of AI and scripts; a game replayed with the same seed and keys plays out the same
+     */
+    public void setSeed(long seed) {
+        myRandom.setSeed(seed);
+    }
+
+    /**
+     * Reports the stages of every updateScene to the given recorder (SystemTimings, FrameProfiler), or to none if null
+     */
+    public void setStageRecorder(StageRecorder stageRecorder) {
+        myStageRecorder = stageRecorder;
+    }
+
+    /**
+     * Systems added here run during the entity logic stage of every updateScene, after the LogicComponent scripts
+     * unless they do not conflict with them
+     */
+    public SystemScheduler getSystemScheduler() {
+        return mySystemScheduler;
+    }
+
+    /**
+     * Sets how often AI entities away from the view think, and how much time AI may take per tick
+     */
+    public AIScheduler getAIScheduler() {
+        return myAIScheduler;
+    }
+
+    public NavigationService getNavigation() {
+        return myNavigation;
+    }
+
+    public ScriptCache getScriptCache() {
+        return myScriptCache;
+    }
+
     public int getUserID(){
         return myUserID;
     }
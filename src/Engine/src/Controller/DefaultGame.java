@@ -1,6 +1,8 @@
 package Engine.src.Controller;
 
 import Engine.src.Components.*;
+import Engine.src.ECS.Collision.BroadPhase;
+import Engine.src.ECS.Collision.SweepAndPrune;
 import Engine.src.ECS.Pair;
 import Engine.src.Triggers.Events.Event;
 import Engine.src.Triggers.Events.ObjectEvents.Deflect;
@@ -11,7 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class DefaultGame {
+public class DefaultGame implements GameSource {
     private static final String BLOCK_IMAGE = "/img/block.jpg";
     private static final String USER_IMAGE = "/img/mario.png";
     private static final String PORTAL_IMAGE = "/img/portal.jpg";
@@ -129,6 +131,7 @@ public class DefaultGame {
         myCollisionMap.put(tagPair, new Pair<>(list1, list2));
     }
 
+    @Override
     public Map<Integer, Map<Class<? extends Component>, Component>> getActiveObjects() {
         return myActiveObjects;
     }
@@ -136,4 +139,13 @@ public class DefaultGame {
     public Map<Pair<String>, Pair<List<Event>>> getCollisionMap() {
         return myCollisionMap;
     }
+
+    /**
+     * Only moving entities reach the broad phase (static blocks are in the EntityManager's StaticBVH), and in a
+     * horizontal scroller they are spread out along x, which sweep and prune handles better than a grid
+     */
+    @Override
+    public BroadPhase getBroadPhase() {
+        return new SweepAndPrune();
+    }
 }
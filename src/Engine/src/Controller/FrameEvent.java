@@ -0,0 +1,63 @@
+package Engine.src.Controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+/**
+ * A JFR event with the stage timings of one simulation tick, committed by the FrameProfiler. Shows up under
+ * Engine in JDK Mission Control, next to the GC and thread events of the same moment.
+ */
+@Name("Engine.Frame")
+@Label("Engine Frame")
+@Category("Engine")
+@Description("Time and allocation of each stage of one Controller.updateScene")
+public class FrameEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Total") @Timespan(Timespan.NANOSECONDS)
+    long totalTime;
+
+    @Label("Allocated") @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    @Label("Triggers") @Timespan(Timespan.NANOSECONDS)
+    long triggersTime;
+
+    @Label("Navigation") @Timespan(Timespan.NANOSECONDS)
+    long navigationTime;
+
+    @Label("Entity Logic") @Timespan(Timespan.NANOSECONDS)
+    long entityLogicTime;
+
+    @Label("Timers") @Timespan(Timespan.NANOSECONDS)
+    long timersTime;
+
+    @Label("Sequences") @Timespan(Timespan.NANOSECONDS)
+    long sequencesTime;
+
+    @Label("Collisions") @Timespan(Timespan.NANOSECONDS)
+    long collisionsTime;
+
+    @Label("Structural Changes") @Timespan(Timespan.NANOSECONDS)
+    long structuralChangesTime;
+
+    @Label("Offset") @Timespan(Timespan.NANOSECONDS)
+    long offsetTime;
+
+    /**
+     * Starts recording frame events only; stop it and write the file with Recording.dump
+     */
+    public static Recording startRecording() {
+        Recording recording = new Recording();
+        recording.setName("Engine frames");
+        recording.enable(FrameEvent.class);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,251 @@
+package Engine.src.Controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the wall time and allocation of every UpdateStage for the last few hundred ticks in ring buffers, so frame
+ * spikes can be traced to the stage that caused them. Recording a tick only writes into preallocated arrays.
+ *
+ * Ticks are recorded on the simulation thread; getStats, getFrameStats and writeCsv may be called from any thread.
+ * Each tick is also committed as a FrameEvent while a JFR recording that enables it is running.
+ */
+public class FrameProfiler implements StageRecorder {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final UpdateStage[] STAGES = UpdateStage.values();
+
+    private final int myCapacity;
+    private final long[][] myStageNanos;
+    private final long[][] myStageBytes;
+    private final long[] myFrameNanos;
+    private final long[] myFrameBytes;
+    private final long[] myCurrentNanos;
+    private final long[] myCurrentBytes;
+    private final com.sun.management.ThreadMXBean myThreads;
+    private long myFrames;
+    private long myTickStartNanos;
+    private long myTickStartBytes;
+    private long myMarkNanos;
+    private long myMarkBytes;
+
+    public FrameProfiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrameProfiler(int capacity) {
+        myCapacity = capacity;
+        myStageNanos = new long[STAGES.length][capacity];
+        myStageBytes = new long[STAGES.length][capacity];
+        myFrameNanos = new long[capacity];
+        myFrameBytes = new long[capacity];
+        myCurrentNanos = new long[STAGES.length];
+        myCurrentBytes = new long[STAGES.length];
+        myThreads = allocationCounter();
+    }
+
+    //allocation is only counted on JVMs that expose per-thread allocated bytes
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        var threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return null;
+        var allocationThreads = (com.sun.management.ThreadMXBean) threads;
+        if (!allocationThreads.isThreadAllocatedMemorySupported())
+            return null;
+        allocationThreads.setThreadAllocatedMemoryEnabled(true);
+        return allocationThreads;
+    }
+
+    public boolean measuresAllocation() {
+        return myThreads != null;
+    }
+
+    @Override
+    public void beginTick() {
+        myTickStartNanos = System.nanoTime();
+        myTickStartBytes = allocatedBytes();
+        myMarkNanos = myTickStartNanos;
+        myMarkBytes = myTickStartBytes;
+    }
+
+    @Override
+    public void endStage(UpdateStage stage) {
+        long nanos = System.nanoTime();
+        long bytes = allocatedBytes();
+        myCurrentNanos[stage.ordinal()] = nanos - myMarkNanos;
+        myCurrentBytes[stage.ordinal()] = bytes - myMarkBytes;
+        myMarkNanos = nanos;
+        myMarkBytes = bytes;
+    }
+
+    @Override
+    public void endTick() {
+        long frameNanos = myMarkNanos - myTickStartNanos;
+        long frameBytes = myMarkBytes - myTickStartBytes;
+        synchronized (this) {
+            int slot = (int) (myFrames % myCapacity);
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                myStageNanos[stage][slot] = myCurrentNanos[stage];
+                myStageBytes[stage][slot] = myCurrentBytes[stage];
+            }
+            myFrameNanos[slot] = frameNanos;
+            myFrameBytes[slot] = frameBytes;
+            myFrames++;
+        }
+        commitEvent(frameNanos, frameBytes);
+    }
+
+    private void commitEvent(long frameNanos, long frameBytes) {
+        FrameEvent event = new FrameEvent();
+        if (!event.isEnabled())
+            return;
+        event.tick = myFrames - 1;
+        event.totalTime = frameNanos;
+        event.allocated = frameBytes;
+        event.triggersTime = myCurrentNanos[UpdateStage.TRIGGERS.ordinal()];
+        event.navigationTime = myCurrentNanos[UpdateStage.NAVIGATION.ordinal()];
+        event.entityLogicTime = myCurrentNanos[UpdateStage.ENTITY_LOGIC.ordinal()];
+        event.timersTime = myCurrentNanos[UpdateStage.TIMERS.ordinal()];
+        event.sequencesTime = myCurrentNanos[UpdateStage.SEQUENCES.ordinal()];
+        event.collisionsTime = myCurrentNanos[UpdateStage.COLLISIONS.ordinal()];
+        event.structuralChangesTime = myCurrentNanos[UpdateStage.STRUCTURAL_CHANGES.ordinal()];
+        event.offsetTime = myCurrentNanos[UpdateStage.OFFSET.ordinal()];
+        event.commit();
+    }
+
+    private long allocatedBytes() {
+        return myThreads == null ? 0 : myThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return how many ticks have been recorded in total, including those no longer in the buffers
+     */
+    public synchronized long getFrameCount() {
+        return myFrames;
+    }
+
+    public synchronized FrameStats getStats(UpdateStage stage) {
+        return new FrameStats(myStageNanos[stage.ordinal()], myStageBytes[stage.ordinal()], bufferedFrames());
+    }
+
+    /**
+     * @return the stats of whole ticks, all stages together
+     */
+    public synchronized FrameStats getFrameStats() {
+        return new FrameStats(myFrameNanos, myFrameBytes, bufferedFrames());
+    }
+
+    /**
+     * @return the stage with the highest p99 time, the usual suspect for a spike
+     */
+    public UpdateStage getSlowestStage() {
+        UpdateStage slowest = STAGES[0];
+        long slowestNanos = -1;
+        for (UpdateStage stage : STAGES) {
+            long nanos = getStats(stage).getP99Nanos();
+            if (nanos > slowestNanos) {
+                slowest = stage;
+                slowestNanos = nanos;
+            }
+        }
+        return slowest;
+    }
+
+    private int bufferedFrames() {
+        return (int) Math.min(myFrames, myCapacity);
+    }
+
+    /**
+     * Writes the buffered ticks, oldest first, one row per tick with the time and allocation of every stage
+     */
+    public void writeCsv(Writer writer) {
+        PrintWriter csv = new PrintWriter(writer);
+        StringBuilder header = new StringBuilder("tick,total_ns,total_bytes");
+        for (UpdateStage stage : STAGES) {
+            String name = stage.name().toLowerCase();
+            header.append(',').append(name).append("_ns,").append(name).append("_bytes");
+        }
+        csv.println(header);
+        synchronized (this) {
+            long first = myFrames - bufferedFrames();
+            for (long tick = first; tick < myFrames; tick++) {
+                int slot = (int) (tick % myCapacity);
+                StringBuilder row = new StringBuilder();
+                row.append(tick).append(',').append(myFrameNanos[slot]).append(',').append(myFrameBytes[slot]);
+                for (int stage = 0; stage < STAGES.length; stage++)
+                    row.append(',').append(myStageNanos[stage][slot]).append(',').append(myStageBytes[stage][slot]);
+                csv.println(row);
+            }
+        }
+        csv.flush();
+    }
+
+    public void writeCsv(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writeCsv(writer);
+        }
+    }
+
+    /**
+     * Percentiles over the ticks a FrameProfiler still has buffered
+     */
+    public static final class FrameStats {
+        private static final double NANOS_PER_MICRO = 1e3;
+
+        private final int myFrames;
+        private final long myP50Nanos;
+        private final long myP99Nanos;
+        private final long myMaxNanos;
+        private final double myMeanBytes;
+
+        private FrameStats(long[] nanos, long[] bytes, int frames) {
+            myFrames = frames;
+            long[] sorted = Arrays.copyOf(nanos, frames);
+            Arrays.sort(sorted);
+            myP50Nanos = percentile(sorted, 0.50);
+            myP99Nanos = percentile(sorted, 0.99);
+            myMaxNanos = frames == 0 ? 0 : sorted[frames - 1];
+            long totalBytes = 0;
+            for (int k = 0; k < frames; k++)
+                totalBytes += bytes[k];
+            myMeanBytes = frames == 0 ? 0 : (double) totalBytes / frames;
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0)
+                return 0;
+            int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+        }
+
+        public int getFrames() {
+            return myFrames;
+        }
+
+        public long getP50Nanos() {
+            return myP50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return myP99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return myMaxNanos;
+        }
+
+        public double getMeanBytes() {
+            return myMeanBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %.1f us, p99 %.1f us, max %.1f us, %.0f B/tick", myP50Nanos / NANOS_PER_MICRO,
+                    myP99Nanos / NANOS_PER_MICRO, myMaxNanos / NANOS_PER_MICRO, myMeanBytes);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package Engine.src.Controller;
+
+import Engine.src.Components.Component;
+import Engine.src.ECS.Collision.BroadPhase;
+
+import java.util.Map;
+
+/**
+ * Where the Controller gets the entities of a game and how their collisions are found. DefaultGame is the hardcoded
+ * demo level; other sources (saved games, generated worlds for benchmarking) implement the same methods.
+ */
+public interface GameSource {
+
+    Map<Integer, Map<Class<? extends Component>, Component>> getActiveObjects();
+
+    BroadPhase getBroadPhase();
+}
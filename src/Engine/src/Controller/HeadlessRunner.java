@@ -0,0 +1,159 @@
+package Engine.src.Controller;
+
+import Engine.src.ECS.Integrator;
+import Engine.src.Utilities.GameRandom;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs games without the Player or any JavaFX toolkit. Steps Controller.updateScene as fast as it can for a fixed number
+ * of ticks, feeding in a KeyScript if one is given, then reports ticks per second and how long each stage of a tick
+ * took. Meant for soak and performance runs on machines with no display.
+ *
+ * Usage: HeadlessRunner [--ticks N] [--sessions N] [--keys FILE] [--game GAME_SOURCE_CLASS] [--quiet]
+ *                       [--csv FILE] [--jfr FILE] [--rate TICKS_PER_SECOND] [--seed SEED]
+ *
+ * --rate scales motion as if the game ran at that many ticks per second (Integrator.REFERENCE_TICKS_PER_SECOND by
+ * default); key script ticks are not rescaled. --seed seeds the game's random numbers (GameRandom.DEFAULT_SEED by
+ * default), so sessions with the same seed and keys play out alike.
+ * --csv writes the per-tick stage timings of the last ticks run (see FrameProfiler); --jfr records every tick as a
+ * FrameEvent into a JFR file. Exits with status 1 if any session throws.
+ */
+public class HeadlessRunner {
+    private static final double STEP_TIME = 5;
+    private static final double SCREEN_WIDTH = 800;
+    private static final double SCREEN_HEIGHT = 600;
+    private static final double LEVEL_WIDTH = 1400 / 3.0;
+    private static final double LEVEL_HEIGHT = 800;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final String myGameClass;
+    private final KeyScript myKeys;
+    private final double myTicksPerSecond;
+    private final long mySeed;
+    private final SystemTimings myTotalTimings;
+    private final FrameProfiler myProfiler;
+
+    public HeadlessRunner(String gameClass, KeyScript keys) {
+        this(gameClass, keys, Integrator.REFERENCE_TICKS_PER_SECOND);
+    }
+
+    public HeadlessRunner(String gameClass, KeyScript keys, double ticksPerSecond) {
+        this(gameClass, keys, ticksPerSecond, GameRandom.DEFAULT_SEED);
+    }
+
+    public HeadlessRunner(String gameClass, KeyScript keys, double ticksPerSecond, long seed) {
+        myGameClass = gameClass;
+        myKeys = keys;
+        myTicksPerSecond = ticksPerSecond;
+        mySeed = seed;
+        myTotalTimings = new SystemTimings();
+        myProfiler = new FrameProfiler();
+    }
+
+    /**
+     * Plays one session from a fresh Controller
+     * @return the session's timings, which are also added to the running total
+     */
+    public SystemTimings runSession(long ticks) {
+        Controller controller = new Controller(createGame(), STEP_TIME, SCREEN_WIDTH, SCREEN_HEIGHT, LEVEL_WIDTH,
+                LEVEL_HEIGHT);
+        controller.setTicksPerSecond(myTicksPerSecond);
+        controller.setSeed(mySeed);
+        SystemTimings timings = new SystemTimings();
+        controller.setStageRecorder(StageRecorder.of(timings, myProfiler));
+        int nextKey = 0;
+        for (long tick = 0; tick < ticks; tick++) {
+            while (nextKey < myKeys.size() && myKeys.getTick(nextKey) <= tick)
+                controller.processKey(myKeys.getKey(nextKey++));
+            controller.updateScene();
+        }
+        myTotalTimings.add(timings);
+        return timings;
+    }
+
+    public SystemTimings getTotalTimings() {
+        return myTotalTimings;
+    }
+
+    public FrameProfiler getProfiler() {
+        return myProfiler;
+    }
+
+    private GameSource createGame() {
+        try {
+            return (GameSource) Class.forName(myGameClass).getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create a GameSource from " + myGameClass, e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long ticks = 10000;
+        int sessions = 1;
+        Path keys = null;
+        String game = DefaultGame.class.getName();
+        boolean quiet = false;
+        Path csv = null;
+        Path jfr = null;
+        double rate = Integrator.REFERENCE_TICKS_PER_SECOND;
+        long seed = GameRandom.DEFAULT_SEED;
+        for (int k = 0; k < args.length; k++) {
+            switch (args[k]) {
+                case "--ticks": ticks = Long.parseLong(args[++k]); break;
+                case "--sessions": sessions = Integer.parseInt(args[++k]); break;
+                case "--keys": keys = Paths.get(args[++k]); break;
+                case "--game": game = args[++k]; break;
+                case "--quiet": quiet = true; break;
+                case "--csv": csv = Paths.get(args[++k]); break;
+                case "--jfr": jfr = Paths.get(args[++k]); break;
+                case "--rate": rate = Double.parseDouble(args[++k]); break;
+                case "--seed": seed = Long.parseLong(args[++k]); break;
+                default:
+                    System.out.println("Usage: HeadlessRunner [--ticks N] [--sessions N] [--keys FILE] " +
+                            "[--game GAME_SOURCE_CLASS] [--quiet] [--csv FILE] [--jfr FILE] [--rate TICKS_PER_SECOND] " +
+                            "[--seed SEED]");
+                    System.exit(2);
+            }
+        }
+
+        HeadlessRunner runner = new HeadlessRunner(game, keys == null ? new KeyScript() : KeyScript.load(keys), rate,
+                seed);
+        Recording recording = jfr == null ? null : FrameEvent.startRecording();
+        int failures = 0;
+        long start = System.nanoTime();
+        for (int session = 0; session < sessions; session++) {
+            long sessionStart = System.nanoTime();
+            try {
+                runner.runSession(ticks);
+                if (!quiet)
+                    System.out.println(String.format("session %d: %d ticks, %.0f ticks/s", session, ticks,
+                            ticks * NANOS_PER_SECOND / (System.nanoTime() - sessionStart)));
+            }
+            catch (RuntimeException e) {
+                failures++;
+                System.out.println("session " + session + " failed: " + e);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        SystemTimings total = runner.getTotalTimings();
+        System.out.println(String.format("%d sessions, %d failed, %d ticks in %.2f s: %.0f ticks/s", sessions, failures,
+                total.getTicks(), elapsed / NANOS_PER_SECOND, total.getTicks() * NANOS_PER_SECOND / elapsed));
+        System.out.print(total);
+        System.out.println("frame: " + runner.getProfiler().getFrameStats());
+        if (csv != null)
+            runner.getProfiler().writeCsv(csv);
+        if (recording != null) {
+            recording.stop();
+            recording.dump(jfr);
+            recording.close();
+        }
+        if (failures > 0)
+            System.exit(1);
+    }
+}
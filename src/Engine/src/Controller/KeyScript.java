@@ -0,0 +1,78 @@
+package Engine.src.Controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Key presses tied to the tick they happen on, for replaying a session without a keyboard. Stored as text with one
+ * "tick KEY" pair per line (e.g. "12 RIGHT"); blank lines and lines starting with # are ignored.
+ */
+public class KeyScript {
+    private final List<Long> myTicks;
+    private final List<String> myKeys;
+
+    public KeyScript() {
+        myTicks = new ArrayList<>();
+        myKeys = new ArrayList<>();
+    }
+
+    public static KeyScript load(Path path) throws IOException {
+        return parse(Files.readAllLines(path));
+    }
+
+    public static KeyScript parse(List<String> lines) {
+        KeyScript script = new KeyScript();
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] parts = line.split("\\s+");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Line " + lineNumber + " is not \"tick KEY\": " + line);
+            try {
+                script.add(Long.parseLong(parts[0]), parts[1]);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + " has a bad tick: " + parts[0]);
+            }
+        }
+        return script;
+    }
+
+    /**
+     * Records a key press; presses must be added in tick order
+     */
+    public synchronized void add(long tick, String key) {
+        if (!myTicks.isEmpty() && tick < myTicks.get(myTicks.size() - 1))
+            throw new IllegalArgumentException("Key at tick " + tick + " comes after tick " + myTicks.get(myTicks.size() - 1));
+        myTicks.add(tick);
+        myKeys.add(key);
+    }
+
+    public synchronized void save(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int k = 0; k < myKeys.size(); k++)
+            lines.add(myTicks.get(k) + " " + myKeys.get(k));
+        Files.write(path, lines);
+    }
+
+    public int size() {
+        return myKeys.size();
+    }
+
+    public long getTick(int index) {
+        return myTicks.get(index);
+    }
+
+    public String getKey(int index) {
+        return myKeys.get(index);
+    }
+
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(myKeys);
+    }
+}
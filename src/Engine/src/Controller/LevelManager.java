@@ -1,5 +1,6 @@
 package Engine.src.Controller;
 
+import Engine.src.Collections.IntObjectMap;
 import Engine.src.ECS.EntityManager;
 import Engine.src.Triggers.Events.Event;
 import Engine.src.Triggers.Timer;
@@ -10,14 +11,14 @@ import java.util.Map;
 
 public class LevelManager {
     private boolean levelPassed;
-    private Map<Integer, Timer> myTimers;
+    private IntObjectMap<Timer> myTimers;
     private List<TimerSequence> myTimerSequences;
     private EntityManager myEntityManager;
     double myCount;
     double myLevelWidth;
     double myLevelHeight;
 
-    public LevelManager(Map<Integer, Timer> timers, List<TimerSequence> timerSequences, EntityManager entityManager, double count, double width, double height){
+    public LevelManager(IntObjectMap<Timer> timers, List<TimerSequence> timerSequences, EntityManager entityManager, double count, double width, double height){
         levelPassed = false;
         myEntityManager = entityManager;
         myTimers = timers;
@@ -29,7 +30,7 @@ public class LevelManager {
 
     public void addTimer(String eventsWhileOn, String eventsAfter, double duration) {
         int max = 0;
-        for(int ID : myTimers.keySet()){
+        for(int ID : myTimers.keys()){
             if (ID > max) max = ID;
         }
         myTimers.put(max + 1, new Timer(eventsWhileOn, eventsAfter, duration, myCount));
@@ -44,22 +45,22 @@ public class LevelManager {
             }
             else {
                 currentTimer.activateEvents(currentTimer.getStateWhileTimerIsOn(), myEntityManager, this);
-                currentTimer.increment();
+                currentTimer.increment(myEntityManager.getDeltaTime());
             }
             if (sequence.completed() && sequence.isLoop()) sequence.reset(myCount);
-            else myTimers.remove(sequence);
         }
     }
 
     public void updateTimers() {
-        for (int timerID : myTimers.keySet()) {
+        //timer events may add timers, so this walks a copy of the ids
+        for (int timerID : myTimers.keys()) {
             Timer timer = myTimers.get(timerID);
             if (timer.getCount() >= timer.getEndTime()){
                 timer.activateEvents(timer.getMyEventsAfterTimer(), myEntityManager, this);
             }
             else {
                 timer.activateEvents(timer.getStateWhileTimerIsOn(), myEntityManager, this);
-                timer.increment();
+                timer.increment(myEntityManager.getDeltaTime());
             }
         }
     }
@@ -0,0 +1,184 @@
+package Engine.src.Controller;
+
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.ComponentColumns;
+import Engine.src.Components.MotionComponent;
+import Engine.src.ECS.Archetype;
+import Engine.src.ECS.ArchetypeStorage;
+import Engine.src.ECS.EntityManager;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable copy of everything the Player needs to draw one simulation tick: the bounds, image and z-index of every
+ * entity on or near the screen, plus the scroll offset and the user's velocity for the HUD. Snapshots are captured on
+ * the simulation thread and read on the rendering thread, which never touches the live components.
+ *
+ * A snapshot holds only the visible entities, sorted by id so indexOf is a binary search; its size, and the garbage it
+ * leaves each tick, depends on how much is on screen rather than on how big the level is.
+ */
+public final class RenderSnapshot {
+    private static final int BOUNDS = 4;
+    private static final ThreadLocal<VisibleEntities> VISIBLE = ThreadLocal.withInitial(VisibleEntities::new);
+
+    private final long myTick;
+    private final int mySize;
+    private final int[] myEntities;
+    private final double[] myBounds;
+    private final int[] myZIndex;
+    private final String[] myImages;
+    private final double myOffsetX;
+    private final double myOffsetY;
+    private final int myUserID;
+    private boolean myUserMoves;
+    private double myUserXVelocity;
+    private double myUserYVelocity;
+
+    private RenderSnapshot(long tick, int[] entities, int size, double[] offset, int userID) {
+        myTick = tick;
+        mySize = size;
+        myEntities = entities;
+        myBounds = new double[BOUNDS * size];
+        myZIndex = new int[size];
+        myImages = new String[size];
+        myOffsetX = offset[0];
+        myOffsetY = offset[1];
+        myUserID = userID;
+    }
+
+    /**
+     * Captures the entities whose bounds touch the given rectangle of the level. Static geometry, which is most of a
+     * level, is found through the EntityManager's StaticBVH; moving entities are few and are tested directly.
+     */
+    public static RenderSnapshot capture(EntityManager manager, double[] offset, long tick, int userID, double x,
+                                         double y, double width, double height) {
+        ArchetypeStorage storage = manager.getStorage();
+        //the collecting buffer is kept from capture to capture; only the snapshot's own arrays are new
+        VisibleEntities visible = VISIBLE.get();
+        visible.mySize = 0;
+        for (Archetype archetype : storage.getArchetypes()) {
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null || !archetype.has(MotionComponent.class))
+                continue;
+            double[] minX = bounds.getColumn(BasicComponent.X);
+            double[] minY = bounds.getColumn(BasicComponent.Y);
+            double[] widths = bounds.getColumn(BasicComponent.WIDTH);
+            double[] heights = bounds.getColumn(BasicComponent.HEIGHT);
+            for (int row = 0; row < archetype.size(); row++) {
+                if (minX[row] <= x + width && minX[row] + widths[row] >= x
+                        && minY[row] <= y + height && minY[row] + heights[row] >= y)
+                    visible.accept(archetype.getEntity(row));
+            }
+        }
+        manager.getStaticGeometry().query(x, y, width, height, visible);
+
+        Arrays.sort(visible.myEntities, 0, visible.mySize);
+        RenderSnapshot snapshot = new RenderSnapshot(tick, Arrays.copyOf(visible.myEntities, visible.mySize),
+                visible.mySize, offset, userID);
+        MotionComponent userMotion = manager.getComponent(userID, MotionComponent.class);
+        if (userMotion != null) {
+            snapshot.myUserMoves = true;
+            snapshot.myUserXVelocity = userMotion.getXVelocity();
+            snapshot.myUserYVelocity = userMotion.getYVelocity();
+        }
+        for (int index = 0; index < snapshot.mySize; index++) {
+            int entityID = snapshot.myEntities[index];
+            Archetype archetype = storage.getArchetype(entityID);
+            int row = storage.getRow(entityID);
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            BasicComponent basic = (BasicComponent) archetype.getComponents(BasicComponent.class)[row];
+            int offsetInBounds = BOUNDS * index;
+            snapshot.myBounds[offsetInBounds] = bounds.get(BasicComponent.X, row);
+            snapshot.myBounds[offsetInBounds + 1] = bounds.get(BasicComponent.Y, row);
+            snapshot.myBounds[offsetInBounds + 2] = bounds.get(BasicComponent.WIDTH, row);
+            snapshot.myBounds[offsetInBounds + 3] = bounds.get(BasicComponent.HEIGHT, row);
+            snapshot.myImages[index] = basic.getMyFilename();
+            snapshot.myZIndex[index] = basic.getMyZIndex();
+        }
+        return snapshot;
+    }
+
+    public long getTick() {
+        return myTick;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public int getEntity(int index) {
+        return myEntities[index];
+    }
+
+    /**
+     * @return where an entity is in this snapshot, or -1 if it is not in it
+     */
+    public int indexOf(int entityID) {
+        int index = Arrays.binarySearch(myEntities, 0, mySize, entityID);
+        return index < 0 ? -1 : index;
+    }
+
+    public double getX(int index) {
+        return myBounds[BOUNDS * index];
+    }
+
+    public double getY(int index) {
+        return myBounds[BOUNDS * index + 1];
+    }
+
+    public double getWidth(int index) {
+        return myBounds[BOUNDS * index + 2];
+    }
+
+    public double getHeight(int index) {
+        return myBounds[BOUNDS * index + 3];
+    }
+
+    public int getZIndex(int index) {
+        return myZIndex[index];
+    }
+
+    public String getImage(int index) {
+        return myImages[index];
+    }
+
+    public double getOffsetX() {
+        return myOffsetX;
+    }
+
+    public double getOffsetY() {
+        return myOffsetY;
+    }
+
+    public int getUserID() {
+        return myUserID;
+    }
+
+    /**
+     * @return true if the user has a MotionComponent, so its velocity was captured
+     */
+    public boolean hasUserVelocity() {
+        return myUserMoves;
+    }
+
+    public double getUserXVelocity() {
+        return myUserXVelocity;
+    }
+
+    public double getUserYVelocity() {
+        return myUserYVelocity;
+    }
+
+    private static class VisibleEntities implements IntConsumer {
+        private int[] myEntities = new int[64];
+        private int mySize;
+
+        @Override
+        public void accept(int entityID) {
+            if (mySize == myEntities.length)
+                myEntities = Arrays.copyOf(myEntities, mySize * 2);
+            myEntities[mySize++] = entityID;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package Engine.src.Controller;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiles each distinct script source once and keeps the generated Script class in a bounded, least recently used
+ * cache. Every run gets a new Script instance bound to the caller's Binding, so cached classes are never shared state.
+ *
+ * Parsing a source with a new GroovyShell every frame generates a new class every frame; going through this cache
+ * keeps the number of generated classes bounded by the number of distinct sources.
+ *
+ * Scripts run on many workers at once (see SystemScheduler), so a hit takes no lock: it reads a ConcurrentHashMap and
+ * stamps the entry with the current miss count. Only misses lock, to compile, and evict the entry with the oldest
+ * stamp, which approximates least recently used.
+ */
+public class ScriptCache {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final GroovyShell myShell;
+    private final int myCapacity;
+    private final Map<String, Entry> myCompiledScripts;
+    private final LongAdder myHits;
+    private volatile long myMisses;
+    private long myEvictions;
+
+    public ScriptCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ScriptCache(int capacity) {
+        myShell = new GroovyShell();
+        myCapacity = capacity;
+        myCompiledScripts = new ConcurrentHashMap<>();
+        myHits = new LongAdder();
+    }
+
+    /**
+     * Runs a script source against a binding, compiling it only if it has not been seen recently
+     * @return the value of the script, or null for a null source
+     */
+    public Object run(String source, Binding binding) {
+        if (source == null)
+            return null;
+        Script script = InvokerHelper.createScript(compile(source), binding);
+        return script.run();
+    }
+
+    public Class<? extends Script> compile(String source) {
+        Entry entry = myCompiledScripts.get(source);
+        if (entry == null)
+            return compileMissing(source);
+        myHits.increment();
+        entry.myLastUsed = myMisses;
+        return entry.myCompiled;
+    }
+
+    //another worker may have compiled the source while this one waited for the lock
+    private synchronized Class<? extends Script> compileMissing(String source) {
+        Entry entry = myCompiledScripts.get(source);
+        if (entry != null)
+            return entry.myCompiled;
+        myMisses++;
+        if (myCompiledScripts.size() >= myCapacity)
+            evictLeastRecentlyUsed();
+        entry = new Entry(myShell.parse(source).getClass(), myMisses);
+        myCompiledScripts.put(source, entry);
+        return entry.myCompiled;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        String eldest = null;
+        long eldestUse = Long.MAX_VALUE;
+        for (Map.Entry<String, Entry> entry : myCompiledScripts.entrySet()) {
+            if (entry.getValue().myLastUsed < eldestUse) {
+                eldest = entry.getKey();
+                eldestUse = entry.getValue().myLastUsed;
+            }
+        }
+        myCompiledScripts.remove(eldest);
+        myEvictions++;
+        myShell.getClassLoader().clearCache(); //otherwise the loader keeps every evicted class reachable
+    }
+
+    public long getHits() {
+        return myHits.sum();
+    }
+
+    public long getMisses() {
+        return myMisses;
+    }
+
+    public synchronized long getEvictions() {
+        return myEvictions;
+    }
+
+    public int size() {
+        return myCompiledScripts.size();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + myMisses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ScriptCache[size=" + myCompiledScripts.size() + ", hits=" + getHits() + ", misses=" + myMisses +
+                ", evictions=" + myEvictions + "]";
+    }
+
+    private static class Entry {
+        private final Class<? extends Script> myCompiled;
+        //racy by design: a stale stamp only makes eviction a little less exact
+        private long myLastUsed;
+
+        private Entry(Class<? extends Script> compiled, long lastUsed) {
+            myCompiled = compiled;
+            myLastUsed = lastUsed;
+        }
+    }
+}
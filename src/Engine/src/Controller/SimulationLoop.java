@@ -0,0 +1,164 @@
+package Engine.src.Controller;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs Controller.updateScene on its own thread at a fixed timestep, independent of how fast the Player renders.
+ * Elapsed time is collected in an accumulator and spent in whole ticks; after each tick a RenderSnapshot is published
+ * together with the one before it, so the rendering thread can interpolate between the two without touching engine
+ * state. Key presses are queued and handed to the Controller on the simulation thread.
+ *
+ * A tick that throws leaves the world half updated, so the loop stops there and keeps the exception for getFailure.
+ */
+public class SimulationLoop {
+    private static final int MAX_TICKS_PER_UPDATE = 5;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Controller myController;
+    private final long myTickNanos;
+    private final Queue<String> myPendingKeys;
+    private volatile Frame myFrame;
+    private volatile boolean myRunning;
+    private volatile boolean myPaused;
+    private Thread myThread;
+    private long myTick;
+    private volatile KeyScript myRecording;
+    private volatile RuntimeException myFailure;
+
+    public SimulationLoop(Controller controller, double ticksPerSecond) {
+        myController = controller;
+        myTickNanos = (long) (NANOS_PER_SECOND / ticksPerSecond);
+        controller.setTicksPerSecond(ticksPerSecond);
+        myPendingKeys = new ConcurrentLinkedQueue<>();
+        RenderSnapshot first = controller.captureSnapshot(0);
+        myFrame = new Frame(first, first, System.nanoTime());
+    }
+
+    public synchronized void start() {
+        if (myRunning)
+            return;
+        myRunning = true;
+        myThread = new Thread(this::run, "simulation");
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    public synchronized void stop() {
+        myRunning = false;
+        if (myThread != null)
+            myThread.interrupt();
+    }
+
+    public void setPaused(boolean paused) {
+        myPaused = paused;
+    }
+
+    public boolean isPaused() {
+        return myPaused;
+    }
+
+    /**
+     * Queues a key press; it is processed on the simulation thread before the next tick
+     */
+    public void submitKey(String key) {
+        myPendingKeys.add(key);
+    }
+
+    /**
+     * Records every key press, with the tick it was processed on, so the session can be replayed by the
+     * HeadlessRunner; null stops recording
+     */
+    public void setRecording(KeyScript recording) {
+        myRecording = recording;
+    }
+
+    /**
+     * @return the exception that stopped the simulation, or null if no tick has failed
+     */
+    public RuntimeException getFailure() {
+        return myFailure;
+    }
+
+    /**
+     * @return the two most recent snapshots, published together
+     */
+    public Frame getFrame() {
+        return myFrame;
+    }
+
+    /**
+     * @return how far the given time is between the frame's two snapshots, from 0 (previous) to 1 (current)
+     */
+    public double getAlpha(Frame frame, long nanoTime) {
+        double alpha = (double) (nanoTime - frame.getPublishedAt()) / myTickNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    private void run() {
+        long previousTime = System.nanoTime();
+        long accumulator = 0;
+        while (myRunning) {
+            long now = System.nanoTime();
+            accumulator = Math.min(accumulator + now - previousTime, MAX_TICKS_PER_UPDATE * myTickNanos);
+            previousTime = now;
+            if (myPaused) {
+                accumulator = 0;
+                myPendingKeys.clear();
+            }
+            while (myRunning && accumulator >= myTickNanos) {
+                tick();
+                accumulator -= myTickNanos;
+            }
+            LockSupport.parkNanos(myTickNanos - accumulator);
+        }
+    }
+
+    private void tick() {
+        try {
+            String key;
+            KeyScript recording = myRecording;
+            while ((key = myPendingKeys.poll()) != null) {
+                if (recording != null)
+                    recording.add(myTick, key);
+                myController.processKey(key);
+            }
+            myController.updateScene();
+        }
+        catch (RuntimeException e) {
+            System.err.println("Simulation tick " + myTick + " failed, stopping the simulation");
+            e.printStackTrace();
+            myFailure = e;
+            myRunning = false;
+            return;
+        }
+        myTick++;
+        RenderSnapshot current = myController.captureSnapshot(myTick);
+        myFrame = new Frame(myFrame.getCurrent(), current, System.nanoTime());
+    }
+
+    public static final class Frame {
+        private final RenderSnapshot myPrevious;
+        private final RenderSnapshot myCurrent;
+        private final long myPublishedAt;
+
+        private Frame(RenderSnapshot previous, RenderSnapshot current, long publishedAt) {
+            myPrevious = previous;
+            myCurrent = current;
+            myPublishedAt = publishedAt;
+        }
+
+        public RenderSnapshot getPrevious() {
+            return myPrevious;
+        }
+
+        public RenderSnapshot getCurrent() {
+            return myCurrent;
+        }
+
+        public long getPublishedAt() {
+            return myPublishedAt;
+        }
+    }
+}
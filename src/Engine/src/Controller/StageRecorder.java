@@ -0,0 +1,42 @@
+package Engine.src.Controller;
+
+/**
+ * Receives the boundaries of each UpdateStage as Controller.updateScene runs them, so it can time the stages.
+ * Every tick is beginTick, then endStage once per stage in order, then endTick.
+ */
+public interface StageRecorder {
+
+    void beginTick();
+
+    /**
+     * The given stage ran from the end of the previous stage (or the start of the tick) until now
+     */
+    void endStage(UpdateStage stage);
+
+    void endTick();
+
+    /**
+     * @return a recorder that passes every call on to all of the given recorders, in order
+     */
+    static StageRecorder of(StageRecorder... recorders) {
+        return new StageRecorder() {
+            @Override
+            public void beginTick() {
+                for (StageRecorder recorder : recorders)
+                    recorder.beginTick();
+            }
+
+            @Override
+            public void endStage(UpdateStage stage) {
+                for (StageRecorder recorder : recorders)
+                    recorder.endStage(stage);
+            }
+
+            @Override
+            public void endTick() {
+                for (StageRecorder recorder : recorders)
+                    recorder.endTick();
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package Engine.src.Controller;
+
+import java.util.Arrays;
+
+/**
+ * Total time spent in each UpdateStage over a number of ticks. Attach one to a Controller with setStageRecorder to see
+ * where a tick goes; a Controller without one does not time anything.
+ */
+public class SystemTimings implements StageRecorder {
+    private static final UpdateStage[] STAGES = UpdateStage.values();
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final long[] myTotalNanos;
+    private long myTicks;
+    private long myMark;
+
+    public SystemTimings() {
+        myTotalNanos = new long[STAGES.length];
+    }
+
+    @Override
+    public void beginTick() {
+        myMark = System.nanoTime();
+    }
+
+    @Override
+    public void endStage(UpdateStage stage) {
+        long now = System.nanoTime();
+        myTotalNanos[stage.ordinal()] += now - myMark;
+        myMark = now;
+    }
+
+    @Override
+    public void endTick() {
+        myTicks++;
+    }
+
+    public long getTicks() {
+        return myTicks;
+    }
+
+    public long getTotalNanos(UpdateStage stage) {
+        return myTotalNanos[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : myTotalNanos)
+            total += nanos;
+        return total;
+    }
+
+    public double getMeanMicros(UpdateStage stage) {
+        return myTicks == 0 ? 0 : getTotalNanos(stage) / NANOS_PER_MICRO / myTicks;
+    }
+
+    /**
+     * Adds another set of timings to this one, e.g. to total several sessions
+     */
+    public void add(SystemTimings other) {
+        for (int k = 0; k < myTotalNanos.length; k++)
+            myTotalNanos[k] += other.myTotalNanos[k];
+        myTicks += other.myTicks;
+    }
+
+    public void reset() {
+        Arrays.fill(myTotalNanos, 0);
+        myTicks = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(String.format("%-18s %12s %8s%n", "stage", "us/tick", "share"));
+        long total = Math.max(1, getTotalNanos());
+        for (UpdateStage stage : STAGES) {
+            table.append(String.format("%-18s %12.2f %7.1f%%%n", stage, getMeanMicros(stage),
+                    100.0 * getTotalNanos(stage) / total));
+        }
+        return table.toString();
+    }
+}
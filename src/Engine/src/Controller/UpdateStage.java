@@ -0,0 +1,15 @@
+package Engine.src.Controller;
+
+/**
+ * The systems Controller.updateScene runs each tick, in order
+ */
+public enum UpdateStage {
+    TRIGGERS,
+    NAVIGATION,
+    ENTITY_LOGIC,
+    TIMERS,
+    SEQUENCES,
+    COLLISIONS,
+    STRUCTURAL_CHANGES,
+    OFFSET
+}
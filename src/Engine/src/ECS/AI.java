@@ -4,77 +4,223 @@ import Engine.src.Components.AimComponent;
 import Engine.src.Components.BasicComponent;
 import Engine.src.Components.LOSComponent;
 import Engine.src.Components.MotionComponent;
+import Engine.src.ECS.Navigation.FlowField;
+import Engine.src.ECS.Navigation.NavigationService;
+import Engine.src.ECS.Navigation.PathRequest;
+import Engine.src.Utilities.GameRandom;
+import Engine.src.Utilities.VectorMath;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.Random;
 
+/**
+ * Decides what AI entities do. Deciding only reads the world, so an AI made by deferringTo can decide for entities on
+ * a script worker (see ScriptLogicSystem) and leave its moves and aims in the worker's CommandBuffer, to be made at the
+ * sync point.
+ */
 public class AI {
 
     private EntityManager myEntityManager;
+    private NavigationService myNavigation;
+    private AIScheduler myScheduler;
+    private GameRandom myRandom;
+    private CommandBuffer myCommands;
     private final double myCorrectionAngle = 2;
     private final double myCorrectionDistance = 150;
 
-    public AI(EntityManager entityManager) {
+    public AI(EntityManager entityManager, NavigationService navigation, AIScheduler scheduler, GameRandom random) {
         myEntityManager = entityManager;
+        myNavigation = navigation;
+        myScheduler = scheduler;
+        myRandom = random;
+    }
+
+    /**
+     * @return an AI sharing this one's scheduler and navigation that queues its changes to entities in the buffer
+     * instead of making them
+     */
+    public AI deferringTo(CommandBuffer commands) {
+        AI deferring = new AI(myEntityManager, myNavigation, myScheduler, myRandom);
+        deferring.myCommands = commands;
+        return deferring;
+    }
+
+    private void moveInDirection(int entityID, double directionX, double directionY) {
+        if (myCommands == null)
+            myEntityManager.moveInDirection(entityID, directionX, directionY);
+        else
+            myCommands.add(entityManager -> entityManager.moveInDirection(entityID, directionX, directionY));
+    }
+
+    /**
+     * @return true if the scheduler gives the entity a turn to think this tick. If not, an entity that was moving
+     * keeps to the heading it last decided on, unless it is dormant.
+     */
+    private boolean takeTurn(int entityID, boolean moving) {
+        if (myScheduler.shouldThink(entityID)) {
+            if (moving)
+                myScheduler.stop(entityID);
+            return true;
+        }
+        double[] direction = moving ? myScheduler.getDirection(entityID) : null;
+        if (direction != null && !myScheduler.isDormant(entityID))
+            moveInDirection(entityID, direction[0], direction[1]);
+        return false;
+    }
+
+    //moves as decided, remembering the heading for the turns the entity skips
+    private void move(int entityID, double directionX, double directionY) {
+        myScheduler.setDirection(entityID, directionX, directionY);
+        moveInDirection(entityID, directionX, directionY);
+    }
+
+    //moves towards the point at the given offset, if it is not where the entity already is
+    private void moveTowards(int entityID, double deltaX, double deltaY) {
+        double magnitude = VectorMath.length(deltaX, deltaY);
+        if (magnitude > 0)
+            move(entityID, deltaX / magnitude, deltaY / magnitude);
     }
 
     private void movementResponse(int referenceID, int targetID, String movementType) {
         LOSComponent LOSComp = myEntityManager.getComponent(referenceID, LOSComponent.class);
-        double[] distanceVec = findDistanceVector(referenceID, targetID);
-        double magnitude = calculateMagnitude(distanceVec);
+        BasicComponent referenceBasic = myEntityManager.getComponent(referenceID, BasicComponent.class);
+        BasicComponent targetBasic = myEntityManager.getComponent(targetID, BasicComponent.class);
+        double deltaX = targetBasic.getX() - referenceBasic.getX();
+        double deltaY = targetBasic.getY() - referenceBasic.getY();
+        double magnitude = VectorMath.length(deltaX, deltaY);
+        if (magnitude == 0)
+            return;
         if (LOSComp == null || isInLOS(targetID, referenceID, magnitude, LOSComp.getLOS())) {
-            double[] direction = findDirection(distanceVec);
+            double directionX = deltaX / magnitude;
+            double directionY = deltaY / magnitude;
             if(movementType.equals("FLEE")) {
-                direction[0] = direction[0] * -1;
-                direction[1] = direction[1] * -1;
+                directionX = directionX * -1;
+                directionY = directionY * -1;
                 BasicComponent basic = myEntityManager.getComponent(referenceID, BasicComponent.class);
-                double currentX = basic.getX();
-                double currentY = basic.getY();
-                double[] targetLocation = {currentX + (myCorrectionDistance * direction[0]), currentY + (myCorrectionDistance * direction[1])};
-                while(myEntityManager.targetPointObscured(targetLocation[0], targetLocation[1], referenceID)){
-                    double angle = Math.atan(currentY / currentX);
-                    angle += myCorrectionAngle;
-                    direction[0] = Math.cos(angle);
-                    direction[1] = Math.sin(angle);
-                    double[] newDirection = {currentX + (myCorrectionDistance * direction[0]), currentY + (myCorrectionDistance * direction[1])};
-                    targetLocation = newDirection;
+                double centreX = basic.getX() + basic.getWidth() / 2;
+                double centreY = basic.getY() + basic.getHeight() / 2;
+                //turn by the correction angle until a clear spot is found, trying each heading once at most
+                double angle = VectorMath.angle(directionX, directionY);
+                int attempts = (int) Math.ceil(2 * Math.PI / myCorrectionAngle);
+                for (int attempt = 0; attempt < attempts; attempt++) {
+                    double heading = angle + attempt * myCorrectionAngle;
+                    if (!myEntityManager.targetPointObscured(centreX + myCorrectionDistance * Math.cos(heading),
+                            centreY + myCorrectionDistance * Math.sin(heading), referenceID)) {
+                        directionX = Math.cos(heading);
+                        directionY = Math.sin(heading);
+                        break;
+                    }
                 }
             }
-            myEntityManager.moveInDirection(referenceID, direction);
+            move(referenceID, directionX, directionY);
         }
     }
 
     public void flee(int referenceID, int targetID){
+        if (!takeTurn(referenceID, true))
+            return;
+        long start = System.nanoTime();
         movementResponse(referenceID, targetID, "FLEE");
+        myScheduler.finishThinking(referenceID, start);
     }
 
     public void follow(int referenceID, int targetID) {
+        if (!takeTurn(referenceID, true))
+            return;
+        long start = System.nanoTime();
         movementResponse(referenceID, targetID, "FOLLOW");
+        myScheduler.finishThinking(referenceID, start);
+    }
+
+
+    /**
+     * Moves the entity towards the target along the flow field shared by everything chasing it, so a horde costs one
+     * field rather than a path each. Until the field is ready, and in the target's own cell, heads straight for it.
+     */
+    public void swarm(int referenceID, int targetID) {
+        if (!takeTurn(referenceID, true))
+            return;
+        long start = System.nanoTime();
+        followField(referenceID, targetID);
+        myScheduler.finishThinking(referenceID, start);
+    }
+
+    private void followField(int referenceID, int targetID) {
+        FlowField field = myNavigation.getFlowField(targetID);
+        BasicComponent basic = myEntityManager.getComponent(referenceID, BasicComponent.class);
+        double centreX = basic.getX() + basic.getWidth() / 2;
+        double centreY = basic.getY() + basic.getHeight() / 2;
+        if (field.hasDirection(centreX, centreY)) {
+            move(referenceID, field.getDirectionX(centreX, centreY), field.getDirectionY(centreX, centreY));
+        }
+        else if (field.getDistance(centreX, centreY) < Double.POSITIVE_INFINITY || field.getGoalCell() < 0) {
+            BasicComponent target = myEntityManager.getComponent(targetID, BasicComponent.class);
+            moveTowards(referenceID, target.getX() - basic.getX(), target.getY() - basic.getY());
+        }
+    }
+
+    /**
+     * Moves the entity along a planned path around impassable entities towards the target. Paths are planned over the
+     * next ticks (see NavigationService); until the first one arrives the entity waits, and while a newer one is
+     * planned it keeps to the old.
+     */
+    public void navigate(int entityID, int targetID) {
+        BasicComponent target = myEntityManager.getComponent(targetID, BasicComponent.class);
+        navigateTo(entityID, target.getX() + target.getWidth() / 2, target.getY() + target.getHeight() / 2);
     }
 
+    public void navigateTo(int entityID, double goalX, double goalY) {
+        if (!takeTurn(entityID, true))
+            return;
+        long start = System.nanoTime();
+        followRoute(entityID, goalX, goalY);
+        myScheduler.finishThinking(entityID, start);
+    }
+
+    private void followRoute(int entityID, double goalX, double goalY) {
+        PathRequest request = myNavigation.requestPath(entityID, goalX, goalY);
+        PathRequest route = request.getStatus() == PathRequest.Status.FOUND ? request : myNavigation.getRoute(entityID);
+        if (route == null)
+            return;
+        BasicComponent basic = myEntityManager.getComponent(entityID, BasicComponent.class);
+        double centreX = basic.getX() + basic.getWidth() / 2;
+        double centreY = basic.getY() + basic.getHeight() / 2;
+        double arrived = myNavigation.getGrid().getCellSize() / 2;
+        while (route.getNextWaypoint() < route.getWaypointCount() &&
+                Math.abs(route.getWaypointX(route.getNextWaypoint()) - centreX) < arrived &&
+                Math.abs(route.getWaypointY(route.getNextWaypoint()) - centreY) < arrived)
+            route.advance();
+        //past the last waypoint, which is only the centre of the goal's cell, head for the goal itself
+        if (route.getNextWaypoint() < route.getWaypointCount())
+            moveTowards(entityID, route.getWaypointX(route.getNextWaypoint()) - centreX,
+                    route.getWaypointY(route.getNextWaypoint()) - centreY);
+        else
+            moveTowards(entityID, goalX - centreX, goalY - centreY);
+    }
 
     public void patrol(int entityID, ArrayList<Point2D> patrolRoute) {
+        if (!takeTurn(entityID, true))
+            return;
+        long start = System.nanoTime();
         int patrolStage = findPatrolStage(entityID, patrolRoute);
         BasicComponent basic = myEntityManager.getComponent(entityID, BasicComponent.class);
-        double[] distance = findDistanceVector(new Point2D.Double(basic.getX(), basic.getY()), patrolRoute.get(patrolStage));
-        myEntityManager.moveInDirection(entityID, findDirection(distance));
+        Point2D stage = patrolRoute.get(patrolStage);
+        moveTowards(entityID, stage.getX() - basic.getX(), stage.getY() - basic.getY());
+        myScheduler.finishThinking(entityID, start);
     }
 
     private int findPatrolStage(int entityID, ArrayList<Point2D> patrolRoute) {
         BasicComponent basic = myEntityManager.getComponent(entityID, BasicComponent.class);
-        double[] topLeftCorner = {basic.getX(), basic.getY()};
-        double[] bottomRightCorner = {basic.getX() + basic.getWidth(), basic.getY() + basic.getHeight()};
         Point2D earlierPoint;
         Point2D nextPoint;
 
         for (int currentPatrolPathIndex = 0; currentPatrolPathIndex < patrolRoute.size(); currentPatrolPathIndex++) {
             earlierPoint = patrolRoute.get(currentPatrolPathIndex);
-            nextPoint = patrolRoute.get(currentPatrolPathIndex + 1);
+            nextPoint = patrolRoute.get((currentPatrolPathIndex + 1) % patrolRoute.size());
             if (Line2D.linesIntersect(earlierPoint.getX(), earlierPoint.getY(), nextPoint.getX(), nextPoint.getY(),
-                    topLeftCorner[0], topLeftCorner[1], bottomRightCorner[0], bottomRightCorner[1])) {
-                return currentPatrolPathIndex + 1;
+                    basic.getX(), basic.getY(), basic.getX() + basic.getWidth(), basic.getY() + basic.getHeight())) {
+                return (currentPatrolPathIndex + 1) % patrolRoute.size();
             }
         }
         return 0;
@@ -84,62 +230,55 @@ public class AI {
         return (LOS > distance && !myEntityManager.targetEntityObscured(targetID, referenceID));
     }
 
-    private double[] findDistanceVector(int referenceID, int targetID) {
-        BasicComponent referenceBasic = myEntityManager.getComponent(referenceID, BasicComponent.class);
-        BasicComponent targetBasic = myEntityManager.getComponent(targetID, BasicComponent.class);
-        double deltaX = targetBasic.getX() - referenceBasic.getX();
-        double deltaY = targetBasic.getY() - referenceBasic.getY();
-        double[] vector = {deltaX, deltaY};
-        return vector;
-    }
-
-    private double[] findDistanceVector(Point2D reference, Point2D target) {
-        double deltaX = reference.getX() - reference.getX();
-        double deltaY = target.getY() - target.getY();
-        double[] vector = {deltaX, deltaY};
-        return vector;
-    }
-
-    private double[] findDirection(double[] vector) {
-        double deltaX = vector[0];
-        double deltaY = vector[1];
-        double magnitude = calculateMagnitude(vector);
-        double[] direction = {deltaX / magnitude, deltaY / magnitude};
-        return direction;
+    public void baseAim(int shooterID, int targetID, double accuracy){
+        if (!takeTurn(shooterID, false))
+            return;
+        long start = System.nanoTime();
+        aimDirectly(shooterID, targetID, accuracy);
+        myScheduler.finishThinking(shooterID, start);
     }
 
-    private double calculateMagnitude(double[] vector) {
-        double deltaX = vector[0];
-        double deltaY = vector[1];
-        return Math.pow(Math.pow(deltaX, 2) + Math.pow(deltaY, 2), .5);
+    public void goodAim(int shooterID, int targetID, double accuracy){
+        if (!takeTurn(shooterID, false))
+            return;
+        long start = System.nanoTime();
+        aimAhead(shooterID, targetID, accuracy);
+        myScheduler.finishThinking(shooterID, start);
     }
 
-    public void baseAim(int shooterID, int targetID, double accuracy){
-        double[] distanceVec = findDistanceVector(shooterID, targetID);
-        double angle = Math.atan(distanceVec[1] / distanceVec[0]);
+    private void aimDirectly(int shooterID, int targetID, double accuracy){
+        BasicComponent shooter = myEntityManager.getComponent(shooterID, BasicComponent.class);
+        BasicComponent target = myEntityManager.getComponent(targetID, BasicComponent.class);
+        double angle = VectorMath.angle(target.getX() - shooter.getX(), target.getY() - shooter.getY());
         aim(shooterID, angle, accuracy);
     }
 
-    public void goodAim(int shooterID, int targetID, double accuracy){
+    private void aimAhead(int shooterID, int targetID, double accuracy){
         MotionComponent motion = myEntityManager.getComponent(targetID, MotionComponent.class);
-        if (motion == null) baseAim(shooterID, targetID, accuracy);
+        if (motion == null) aimDirectly(shooterID, targetID, accuracy);
         else {
-            double xVel = motion.getXVelocity();
-            double yVel = motion.getYVelocity();
-            double[] distanceVec = findDistanceVector(shooterID, targetID);
-            double idealX = distanceVec[0] + (myEntityManager.getStepTime() * xVel);
-            double idealY = distanceVec[1] + (myEntityManager.getStepTime() * yVel);
-            double[] idealDistanceVec = {idealX, idealY};
-            double angle = Math.atan(idealDistanceVec[1] / idealDistanceVec[0]);
-            aim(shooterID, angle, accuracy);
+            BasicComponent shooter = myEntityManager.getComponent(shooterID, BasicComponent.class);
+            BasicComponent target = myEntityManager.getComponent(targetID, BasicComponent.class);
+            double idealX = target.getX() - shooter.getX() + (myEntityManager.getStepTime() * motion.getXVelocity());
+            double idealY = target.getY() - shooter.getY() + (myEntityManager.getStepTime() * motion.getYVelocity());
+            aim(shooterID, VectorMath.angle(idealX, idealY), accuracy);
         }
     }
 
+    //the same shooter on the same tick always gets the same spread, so replays aim alike
     private void aim(int shooterID, double angle, double accuracy){
-        Random rand = new Random();
-        angle += rand.nextGaussian() * angle * (1 - accuracy);
-        AimComponent aim = myEntityManager.getComponent(shooterID, AimComponent.class);
-        aim.setXAim(Math.cos(angle));
-        aim.setYAim(Math.sin(angle));
+        angle += myRandom.forEntity(shooterID).nextGaussian() * angle * (1 - accuracy);
+        double aimX = Math.cos(angle);
+        double aimY = Math.sin(angle);
+        if (myCommands == null)
+            setAim(myEntityManager, shooterID, aimX, aimY);
+        else
+            myCommands.add(entityManager -> setAim(entityManager, shooterID, aimX, aimY));
+    }
+
+    private static void setAim(EntityManager entityManager, int shooterID, double aimX, double aimY) {
+        AimComponent aim = entityManager.getComponent(shooterID, AimComponent.class);
+        aim.setXAim(aimX);
+        aim.setYAim(aimY);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package Engine.src.ECS;
+
+import Engine.src.Collections.IntObjectMap;
+import Engine.src.Components.BasicComponent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which AI entities get to think this tick, so entities far from the view cost less than those on it. How
+ * often an entity thinks depends on how far its bounds lie outside the view rectangle:
+ * - within the near distance, every tick
+ * - within the far distance, every farInterval ticks, spread over the ticks by entity
+ * - beyond that, never: the entity is dormant until the view comes back
+ *
+ * On top of that, thinking stops for the tick once the AI has spent its budget of microseconds; an entity that missed
+ * its turn stays due and thinks on the next tick with budget to spare. Entities are asked in the same order every tick,
+ * so after a tick that ran out of budget only entities at least as late as the ones it left out may think: those that
+ * just had their turn wait, and the ones left out go first. Between turns an entity keeps doing what it decided last
+ * (see AI), which is much cheaper than deciding again.
+ *
+ * shouldThink and finishThinking may be called from scripts running in parallel (see SystemScheduler).
+ */
+public class AIScheduler {
+    public static final double DEFAULT_NEAR_DISTANCE = 128;
+    public static final double DEFAULT_FAR_DISTANCE = 1024;
+    public static final int DEFAULT_FAR_INTERVAL = 4;
+    public static final long DEFAULT_BUDGET_MICROS = 2000;
+
+    private final EntityManager myEntityManager;
+    private final IntObjectMap<Decision> myDecisions;
+    private final AtomicLong mySpentNanos;
+    private final AtomicInteger myLeastSkippedLateness;
+    private double myNearDistance;
+    private double myFarDistance;
+    private int myFarInterval;
+    private long myBudgetNanos;
+    private int myTick;
+    private int myMinimumLateness;
+    private double myViewX;
+    private double myViewY;
+    private double myViewWidth;
+    private double myViewHeight;
+
+    public AIScheduler(EntityManager entityManager) {
+        myEntityManager = entityManager;
+        myDecisions = new IntObjectMap<>();
+        mySpentNanos = new AtomicLong();
+        myLeastSkippedLateness = new AtomicInteger(Integer.MAX_VALUE);
+        myNearDistance = DEFAULT_NEAR_DISTANCE;
+        myFarDistance = DEFAULT_FAR_DISTANCE;
+        myFarInterval = DEFAULT_FAR_INTERVAL;
+        myBudgetNanos = DEFAULT_BUDGET_MICROS * 1000;
+        myViewWidth = Double.POSITIVE_INFINITY;
+        myViewHeight = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Starts a new tick with a fresh budget, measuring distances from the view with the given top-left corner (the
+     * Controller's offset) and size
+     */
+    public synchronized void beginTick(double viewX, double viewY, double viewWidth, double viewHeight) {
+        myTick++;
+        mySpentNanos.set(0);
+        //the entities left out last tick are a tick later now
+        int skipped = myLeastSkippedLateness.getAndSet(Integer.MAX_VALUE);
+        myMinimumLateness = skipped == Integer.MAX_VALUE ? 0 : skipped + 1;
+        myViewX = viewX;
+        myViewY = viewY;
+        myViewWidth = viewWidth;
+        myViewHeight = viewHeight;
+        myDecisions.removeIf((entityID, decision) -> !myEntityManager.exists(entityID));
+    }
+
+    /**
+     * @return true if the entity is due to think this tick, is not waiting for entities left out last tick, and there is
+     * budget left; the caller then thinks and calls finishThinking with the time it started
+     */
+    public boolean shouldThink(int entityID) {
+        int interval = interval(entityID);
+        if (interval == 0)
+            return false;
+        Decision decision = decision(entityID);
+        //a new entity is staggered by its id, so a crowd arriving together does not think together
+        if (decision.myLastTick == Decision.NEVER)
+            decision.myLastTick = myTick - 1 - Math.floorMod(entityID, interval);
+        //an entity already thinking this tick may finish, e.g. aim after deciding where to move, whatever it costs
+        if (decision.myLastTick == myTick)
+            return true;
+        //how many ticks the entity has been due for, 0 on the tick its turn comes round
+        int lateness = myTick - decision.myLastTick - interval;
+        //not yet due, or due but giving way to entities left out last tick
+        if (lateness < myMinimumLateness)
+            return false;
+        if (mySpentNanos.get() < myBudgetNanos)
+            return true;
+        myLeastSkippedLateness.accumulateAndGet(lateness, Math::min);
+        return false;
+    }
+
+    public void finishThinking(int entityID, long startNanos) {
+        mySpentNanos.addAndGet(System.nanoTime() - startNanos);
+        decision(entityID).myLastTick = myTick;
+    }
+
+    /**
+     * @return true if the entity is too far from the view to do anything at all
+     */
+    public boolean isDormant(int entityID) {
+        return interval(entityID) == 0;
+    }
+
+    /**
+     * Remembers the direction the entity decided to move in, to be kept up between its turns
+     */
+    public void setDirection(int entityID, double directionX, double directionY) {
+        Decision decision = decision(entityID);
+        decision.myDirection[0] = directionX;
+        decision.myDirection[1] = directionY;
+        decision.myMoving = true;
+    }
+
+    /**
+     * @return the direction the entity last decided to move in, or null if it has not decided to move; owned by the
+     * scheduler, so not to be changed
+     */
+    public double[] getDirection(int entityID) {
+        Decision decision = decision(entityID);
+        return decision.myMoving ? decision.myDirection : null;
+    }
+
+    /**
+     * Forgets the entity's last decision, so it stands still between turns
+     */
+    public void stop(int entityID) {
+        decision(entityID).myMoving = false;
+    }
+
+    //1 near the view, the far interval further out, 0 once dormant; entities without bounds are always near
+    private int interval(int entityID) {
+        BasicComponent basic = myEntityManager.getComponent(entityID, BasicComponent.class);
+        if (basic == null)
+            return 1;
+        double left = myViewX - (basic.getX() + basic.getWidth());
+        double right = basic.getX() - (myViewX + myViewWidth);
+        double above = myViewY - (basic.getY() + basic.getHeight());
+        double below = basic.getY() - (myViewY + myViewHeight);
+        double distance = Math.max(Math.max(left, right), Math.max(above, below));
+        if (distance <= myNearDistance)
+            return 1;
+        return distance <= myFarDistance ? myFarInterval : 0;
+    }
+
+    private synchronized Decision decision(int entityID) {
+        Decision decision = myDecisions.get(entityID);
+        if (decision == null) {
+            decision = new Decision();
+            myDecisions.put(entityID, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Sets how far outside the view entities still think every tick, and how far they think at all
+     */
+    public synchronized void setDistances(double nearDistance, double farDistance) {
+        myNearDistance = nearDistance;
+        myFarDistance = farDistance;
+    }
+
+    public synchronized void setFarInterval(int farInterval) {
+        myFarInterval = farInterval;
+    }
+
+    /**
+     * Sets how many microseconds all AI decisions together may take in one tick
+     */
+    public synchronized void setBudgetMicros(long budgetMicros) {
+        myBudgetNanos = budgetMicros * 1000;
+    }
+
+    public long getBudgetMicros() {
+        return myBudgetNanos / 1000;
+    }
+
+    //each entity's state is only touched by the one script thread running that entity
+    private static class Decision {
+        static final int NEVER = Integer.MIN_VALUE;
+
+        int myLastTick = NEVER;
+        final double[] myDirection = new double[2];
+        boolean myMoving;
+    }
+}
@@ -0,0 +1,167 @@
+package Engine.src.ECS;
+
+import Engine.src.Components.Component;
+import Engine.src.Components.ComponentColumns;
+import Engine.src.Components.PackedComponent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every entity with exactly the same set of component classes. Components are kept column by column in contiguous
+ * arrays (one row per entity) and the numeric fields of PackedComponents are kept in primitive ComponentColumns,
+ * so systems can loop over an archetype without any hashing.
+ */
+public class Archetype {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Set<Class<? extends Component>> mySignature;
+    private final Class<? extends Component>[] myTypes;
+    private final int[] myColumnByType;
+    private final Component[][] myComponents;
+    private final ComponentColumns[] myPackedColumns;
+    private int[] myEntities;
+    private int mySize;
+
+    public Archetype(Map<Class<? extends Component>, Component> prototype) {
+        mySignature = Collections.unmodifiableSet(new HashSet<>(prototype.keySet()));
+        //an array of a generic type can only be made through a cast; the signature holds nothing but component classes
+        @SuppressWarnings("unchecked")
+        Class<? extends Component>[] types = (Class<? extends Component>[]) mySignature.toArray(new Class<?>[0]);
+        myTypes = types;
+        myComponents = new Component[myTypes.length][INITIAL_CAPACITY];
+        myPackedColumns = new ComponentColumns[myTypes.length];
+        myEntities = new int[INITIAL_CAPACITY];
+
+        int maxTypeID = -1;
+        for (Class<? extends Component> type : myTypes)
+            maxTypeID = Math.max(maxTypeID, ComponentTypes.idOf(type));
+        myColumnByType = new int[maxTypeID + 1];
+        Arrays.fill(myColumnByType, -1);
+
+        for (int column = 0; column < myTypes.length; column++) {
+            myColumnByType[ComponentTypes.idOf(myTypes[column])] = column;
+            Component component = prototype.get(myTypes[column]);
+            if (component instanceof PackedComponent)
+                myPackedColumns[column] = new ComponentColumns(((PackedComponent) component).getFieldCount(), INITIAL_CAPACITY);
+        }
+    }
+
+    public Set<Class<? extends Component>> getSignature() {
+        return mySignature;
+    }
+
+    public boolean has(Class<? extends Component> componentClass) {
+        return columnOf(componentClass) != -1;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public int getEntity(int row) {
+        return myEntities[row];
+    }
+
+    /**
+     * @return the ids of the entities in this archetype; only the first size() entries are valid
+     */
+    public int[] getEntities() {
+        return myEntities;
+    }
+
+    //can return null
+    @SuppressWarnings("unchecked") //the column found for componentClass only ever holds instances of it
+    public <T extends Component> T get(int row, Class<T> componentClass) {
+        int column = columnOf(componentClass);
+        if (column == -1)
+            return null;
+        return (T) myComponents[column][row];
+    }
+
+    /**
+     * @return the components of one class, indexed by row; only the first size() entries are valid. Can return null
+     */
+    public Component[] getComponents(Class<? extends Component> componentClass) {
+        int column = columnOf(componentClass);
+        if (column == -1)
+            return null;
+        return myComponents[column];
+    }
+
+    /**
+     * @return the primitive fields of a PackedComponent class, indexed by row. Can return null
+     */
+    public ComponentColumns getColumns(Class<? extends Component> componentClass) {
+        int column = columnOf(componentClass);
+        if (column == -1)
+            return null;
+        return myPackedColumns[column];
+    }
+
+    public Map<Class<? extends Component>, Component> getRow(int row) {
+        Map<Class<? extends Component>, Component> components = new HashMap<>();
+        for (int column = 0; column < myTypes.length; column++)
+            components.put(myTypes[column], myComponents[column][row]);
+        return components;
+    }
+
+    int add(int entityID, Map<Class<? extends Component>, Component> components) {
+        ensureCapacity(mySize + 1);
+        int row = mySize;
+        myEntities[row] = entityID;
+        for (int column = 0; column < myTypes.length; column++) {
+            Component component = components.get(myTypes[column]);
+            myComponents[column][row] = component;
+            if (myPackedColumns[column] != null)
+                ((PackedComponent) component).attach(myPackedColumns[column], row);
+        }
+        mySize++;
+        return row;
+    }
+
+    /**
+     * Removes a row by moving the last row into its place.
+     * @return the id of the entity that now occupies the row, or -1 if the removed row was the last one
+     */
+    int remove(int row) {
+        int last = mySize - 1;
+        for (int column = 0; column < myTypes.length; column++) {
+            if (myPackedColumns[column] != null) {
+                ((PackedComponent) myComponents[column][row]).detach();
+                if (row != last) {
+                    myPackedColumns[column].copyRow(last, row);
+                    ((PackedComponent) myComponents[column][last]).moveTo(row);
+                }
+            }
+            myComponents[column][row] = myComponents[column][last];
+            myComponents[column][last] = null;
+        }
+        myEntities[row] = myEntities[last];
+        mySize--;
+        return row == last ? -1 : myEntities[row];
+    }
+
+    private int columnOf(Class<? extends Component> componentClass) {
+        int typeID = ComponentTypes.idOf(componentClass);
+        if (typeID >= myColumnByType.length)
+            return -1;
+        return myColumnByType[typeID];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (myEntities.length >= capacity)
+            return;
+        int newCapacity = Math.max(capacity, myEntities.length * 2);
+        myEntities = Arrays.copyOf(myEntities, newCapacity);
+        for (int column = 0; column < myTypes.length; column++) {
+            myComponents[column] = Arrays.copyOf(myComponents[column], newCapacity);
+            if (myPackedColumns[column] != null)
+                myPackedColumns[column].ensureCapacity(newCapacity);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Engine.src.ECS;
+
+import Engine.src.Components.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores entities grouped into archetypes by component set. An entity id maps straight to its archetype and row
+ * through arrays, so a component lookup is two array reads instead of a hash lookup and a scan.
+ */
+public class ArchetypeStorage {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Map<Set<Class<? extends Component>>, Archetype> myArchetypesBySignature;
+    private List<Archetype> myArchetypes;
+    private Archetype[] myEntityArchetypes;
+    private int[] myEntityRows;
+    private int myEntityCount;
+
+    public ArchetypeStorage() {
+        myArchetypesBySignature = new HashMap<>();
+        myArchetypes = new ArrayList<>();
+        myEntityArchetypes = new Archetype[INITIAL_CAPACITY];
+        myEntityRows = new int[INITIAL_CAPACITY];
+    }
+
+    public ArchetypeStorage(Map<Integer, Map<Class<? extends Component>, Component>> entities) {
+        this();
+        for (var entity : entities.entrySet())
+            create(entity.getKey(), entity.getValue());
+    }
+
+    /**
+     * Adds an entity, replacing any entity that already has the same id
+     */
+    public void create(int entityID, Map<Class<? extends Component>, Component> components) {
+        if (entityID < 0)
+            throw new IllegalArgumentException("Entity IDs must be non-negative: " + entityID);
+        remove(entityID);
+        ensureCapacity(entityID + 1);
+        Archetype archetype = findOrCreateArchetype(components);
+        myEntityArchetypes[entityID] = archetype;
+        myEntityRows[entityID] = archetype.add(entityID, components);
+        myEntityCount++;
+    }
+
+    /**
+     * @return the components the entity had, or null if it did not exist
+     */
+    public Map<Class<? extends Component>, Component> remove(int entityID) {
+        if (!contains(entityID))
+            return null;
+        Archetype archetype = myEntityArchetypes[entityID];
+        int row = myEntityRows[entityID];
+        Map<Class<? extends Component>, Component> components = archetype.getRow(row);
+        int movedEntity = archetype.remove(row);
+        if (movedEntity != -1)
+            myEntityRows[movedEntity] = row;
+        myEntityArchetypes[entityID] = null;
+        myEntityCount--;
+        return components;
+    }
+
+    public void addComponent(int entityID, Component component) {
+        Map<Class<? extends Component>, Component> components = remove(entityID);
+        if (components == null)
+            return;
+        components.put(component.getClass(), component);
+        create(entityID, components);
+    }
+
+    public boolean contains(int entityID) {
+        return entityID >= 0 && entityID < myEntityArchetypes.length && myEntityArchetypes[entityID] != null;
+    }
+
+    //can return null
+    public <T extends Component> T getComponent(int entityID, Class<T> componentClass) {
+        if (!contains(entityID))
+            return null;
+        return myEntityArchetypes[entityID].get(myEntityRows[entityID], componentClass);
+    }
+
+    //can return null
+    public Map<Class<? extends Component>, Component> getComponents(int entityID) {
+        if (!contains(entityID))
+            return null;
+        return myEntityArchetypes[entityID].getRow(myEntityRows[entityID]);
+    }
+
+    //can return null
+    public Archetype getArchetype(int entityID) {
+        if (!contains(entityID))
+            return null;
+        return myEntityArchetypes[entityID];
+    }
+
+    public int getRow(int entityID) {
+        return myEntityRows[entityID];
+    }
+
+    public List<Archetype> getArchetypes() {
+        return Collections.unmodifiableList(myArchetypes);
+    }
+
+    public int size() {
+        return myEntityCount;
+    }
+
+    /**
+     * @return one past the largest entity id the storage has room for; every live id is below this
+     */
+    public int getIDCapacity() {
+        return myEntityArchetypes.length;
+    }
+
+    private Archetype findOrCreateArchetype(Map<Class<? extends Component>, Component> components) {
+        Archetype archetype = myArchetypesBySignature.get(components.keySet());
+        if (archetype == null) {
+            archetype = new Archetype(components);
+            myArchetypesBySignature.put(archetype.getSignature(), archetype);
+            myArchetypes.add(archetype);
+        }
+        return archetype;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (myEntityArchetypes.length >= capacity)
+            return;
+        int newCapacity = Math.max(capacity, myEntityArchetypes.length * 2);
+        myEntityArchetypes = Arrays.copyOf(myEntityArchetypes, newCapacity);
+        myEntityRows = Arrays.copyOf(myEntityRows, newCapacity);
+    }
+}
@@ -0,0 +1,31 @@
+package Engine.src.ECS.Collision;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Narrows the set of entity pairs that need an exact collision test. Implementations track the bounds of every
+ * entity with a BasicComponent and are told when those bounds change, so they can be maintained incrementally.
+ */
+public interface BroadPhase {
+
+    void insert(int entityID, double x, double y, double width, double height);
+
+    void update(int entityID, double x, double y, double width, double height);
+
+    void remove(int entityID);
+
+    boolean contains(int entityID);
+
+    void clear();
+
+    /**
+     * Reports every pair whose bounds might overlap, each pair exactly once
+     */
+    void findPairs(PairVisitor visitor);
+
+    /**
+     * @return true if some entity whose bounds might overlap the rectangle passes the test; the test may be given an
+     * entity more than once, and the search stops at the first that passes
+     */
+    boolean anyMatch(double x, double y, double width, double height, IntPredicate test);
+}
@@ -0,0 +1,13 @@
+package Engine.src.ECS.Collision;
+
+/**
+ * How a pair of touching entities' contact changed since the last frame
+ */
+public enum ContactEvent {
+    /** touching now but not last frame */
+    ENTER,
+    /** touching now and last frame */
+    STAY,
+    /** touched last frame but not any more */
+    EXIT
+}
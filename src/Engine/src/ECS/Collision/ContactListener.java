@@ -0,0 +1,10 @@
+package Engine.src.ECS.Collision;
+
+/**
+ * Told about every contact a ContactTracker reports. entity1 is always the lower id. On EXIT either entity may already
+ * have been removed, so check EntityManager.exists before looking up its components.
+ */
+@FunctionalInterface
+public interface ContactListener {
+    void onContact(ContactEvent event, int entity1, int entity2);
+}
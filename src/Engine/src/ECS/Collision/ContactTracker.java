@@ -0,0 +1,95 @@
+package Engine.src.ECS.Collision;
+
+import Engine.src.Collections.LongSet;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Remembers which pairs of entities touch this frame and which touched the frame before, and reports the difference
+ * as ENTER, STAY and EXIT contacts. Pairs are unordered and kept as packed longs in two sets that swap roles every
+ * frame, so once the sets have grown to the busiest frame seen, tracking contacts allocates nothing.
+ */
+public class ContactTracker {
+    private LongSet myPreviousContacts;
+    private LongSet myCurrentContacts;
+    private final LongConsumer myEnterOrStayReporter;
+    private final LongConsumer myExitReporter;
+    private ContactListener myListener;
+
+    public ContactTracker() {
+        myPreviousContacts = new LongSet();
+        myCurrentContacts = new LongSet();
+        myEnterOrStayReporter = this::reportEnterOrStay;
+        myExitReporter = this::reportExit;
+    }
+
+    /**
+     * Makes this frame's contacts the previous ones and starts an empty set for the new frame
+     */
+    public void beginFrame() {
+        LongSet contacts = myPreviousContacts;
+        myPreviousContacts = myCurrentContacts;
+        myCurrentContacts = contacts;
+        myCurrentContacts.clear();
+    }
+
+    public void touch(int entity1, int entity2) {
+        myCurrentContacts.add(key(entity1, entity2));
+    }
+
+    public boolean isTouching(int entity1, int entity2) {
+        return myCurrentContacts.contains(key(entity1, entity2));
+    }
+
+    public boolean wasTouching(int entity1, int entity2) {
+        return myPreviousContacts.contains(key(entity1, entity2));
+    }
+
+    /**
+     * @return ENTER or STAY for a pair touching this frame, EXIT for one that only touched last frame, null otherwise
+     */
+    public ContactEvent getContact(int entity1, int entity2) {
+        long key = key(entity1, entity2);
+        if (myCurrentContacts.contains(key))
+            return myPreviousContacts.contains(key) ? ContactEvent.STAY : ContactEvent.ENTER;
+        return myPreviousContacts.contains(key) ? ContactEvent.EXIT : null;
+    }
+
+    /**
+     * Reports every contact of the frame so far: ENTER and STAY for the pairs touching now, then EXIT for the pairs
+     * that stopped. The listener must not call touch or beginFrame.
+     */
+    public void report(ContactListener listener) {
+        myListener = listener;
+        try {
+            myCurrentContacts.forEach(myEnterOrStayReporter);
+            myPreviousContacts.forEach(myExitReporter);
+        }
+        finally {
+            myListener = null;
+        }
+    }
+
+    public int size() {
+        return myCurrentContacts.size();
+    }
+
+    public void clear() {
+        myPreviousContacts.clear();
+        myCurrentContacts.clear();
+    }
+
+    private void reportEnterOrStay(long key) {
+        ContactEvent event = myPreviousContacts.contains(key) ? ContactEvent.STAY : ContactEvent.ENTER;
+        myListener.onContact(event, LongSet.first(key), LongSet.second(key));
+    }
+
+    private void reportExit(long key) {
+        if (!myCurrentContacts.contains(key))
+            myListener.onContact(ContactEvent.EXIT, LongSet.first(key), LongSet.second(key));
+    }
+
+    private static long key(int entity1, int entity2) {
+        return LongSet.pair(Math.min(entity1, entity2), Math.max(entity1, entity2));
+    }
+}
@@ -0,0 +1,6 @@
+package Engine.src.ECS.Collision;
+
+@FunctionalInterface
+public interface PairVisitor {
+    void visit(int entity1, int entity2);
+}
@@ -0,0 +1,202 @@
+package Engine.src.ECS.Collision;
+
+import Engine.src.Collections.LongObjectMap;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A uniform grid broad phase. Every entity is listed in each cell its bounds touch, and only entities that share a
+ * cell are reported as a pair. Moving an entity only touches the grid when it crosses into a different set of cells.
+ */
+public class SpatialHash implements BroadPhase {
+    public static final double DEFAULT_CELL_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double myCellSize;
+    private LongObjectMap<Cell> myCells;
+    private boolean[] myTracked;
+    private int[] myMinCellX;
+    private int[] myMinCellY;
+    private int[] myMaxCellX;
+    private int[] myMaxCellY;
+
+    public SpatialHash() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialHash(double cellSize) {
+        myCellSize = cellSize;
+        myCells = new LongObjectMap<>();
+        myTracked = new boolean[INITIAL_CAPACITY];
+        myMinCellX = new int[INITIAL_CAPACITY];
+        myMinCellY = new int[INITIAL_CAPACITY];
+        myMaxCellX = new int[INITIAL_CAPACITY];
+        myMaxCellY = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public void insert(int entityID, double x, double y, double width, double height) {
+        ensureCapacity(entityID + 1);
+        if (myTracked[entityID]) {
+            update(entityID, x, y, width, height);
+            return;
+        }
+        setCellRange(entityID, x, y, width, height);
+        addToCells(entityID);
+        myTracked[entityID] = true;
+    }
+
+    @Override
+    public void update(int entityID, double x, double y, double width, double height) {
+        if (!contains(entityID)) {
+            insert(entityID, x, y, width, height);
+            return;
+        }
+        if (cellOf(x) == myMinCellX[entityID] && cellOf(y) == myMinCellY[entityID] &&
+                cellOf(x + width) == myMaxCellX[entityID] && cellOf(y + height) == myMaxCellY[entityID])
+            return;
+        removeFromCells(entityID);
+        setCellRange(entityID, x, y, width, height);
+        addToCells(entityID);
+    }
+
+    @Override
+    public void remove(int entityID) {
+        if (!contains(entityID))
+            return;
+        removeFromCells(entityID);
+        myTracked[entityID] = false;
+    }
+
+    @Override
+    public boolean contains(int entityID) {
+        return entityID >= 0 && entityID < myTracked.length && myTracked[entityID];
+    }
+
+    @Override
+    public void clear() {
+        myCells.clear();
+        Arrays.fill(myTracked, false);
+    }
+
+    @Override
+    public void findPairs(PairVisitor visitor) {
+        myCells.forEachValue(cell -> findPairs(cell, visitor));
+    }
+
+    @Override
+    public boolean anyMatch(double x, double y, double width, double height, IntPredicate test) {
+        for (int cellX = cellOf(x); cellX <= cellOf(x + width); cellX++) {
+            for (int cellY = cellOf(y); cellY <= cellOf(y + height); cellY++) {
+                Cell cell = myCells.get(key(cellX, cellY));
+                if (cell == null)
+                    continue;
+                for (int k = 0; k < cell.mySize; k++) {
+                    if (test.test(cell.myEntities[k]))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void findPairs(Cell cell, PairVisitor visitor) {
+        for (int first = 0; first < cell.mySize; first++) {
+            int entity1 = cell.myEntities[first];
+            for (int second = first + 1; second < cell.mySize; second++) {
+                int entity2 = cell.myEntities[second];
+                if (isFirstSharedCell(cell, entity1, entity2))
+                    visitor.visit(entity1, entity2);
+            }
+        }
+    }
+
+    /**
+     * Two entities can share several cells; the pair is only reported from the lowest one so it is seen once
+     */
+    private boolean isFirstSharedCell(Cell cell, int entity1, int entity2) {
+        return cell.myX == Math.max(myMinCellX[entity1], myMinCellX[entity2]) &&
+                cell.myY == Math.max(myMinCellY[entity1], myMinCellY[entity2]);
+    }
+
+    private void setCellRange(int entityID, double x, double y, double width, double height) {
+        myMinCellX[entityID] = cellOf(x);
+        myMinCellY[entityID] = cellOf(y);
+        myMaxCellX[entityID] = cellOf(x + width);
+        myMaxCellY[entityID] = cellOf(y + height);
+    }
+
+    private void addToCells(int entityID) {
+        for (int cellX = myMinCellX[entityID]; cellX <= myMaxCellX[entityID]; cellX++) {
+            for (int cellY = myMinCellY[entityID]; cellY <= myMaxCellY[entityID]; cellY++) {
+                long key = key(cellX, cellY);
+                Cell cell = myCells.get(key);
+                if (cell == null) {
+                    cell = new Cell(cellX, cellY);
+                    myCells.put(key, cell);
+                }
+                cell.add(entityID);
+            }
+        }
+    }
+
+    private void removeFromCells(int entityID) {
+        for (int cellX = myMinCellX[entityID]; cellX <= myMaxCellX[entityID]; cellX++) {
+            for (int cellY = myMinCellY[entityID]; cellY <= myMaxCellY[entityID]; cellY++) {
+                long key = key(cellX, cellY);
+                Cell cell = myCells.get(key);
+                if (cell != null && cell.remove(entityID) && cell.mySize == 0)
+                    myCells.remove(key);
+            }
+        }
+    }
+
+    private int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / myCellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (myTracked.length >= capacity)
+            return;
+        int newCapacity = Math.max(capacity, myTracked.length * 2);
+        myTracked = Arrays.copyOf(myTracked, newCapacity);
+        myMinCellX = Arrays.copyOf(myMinCellX, newCapacity);
+        myMinCellY = Arrays.copyOf(myMinCellY, newCapacity);
+        myMaxCellX = Arrays.copyOf(myMaxCellX, newCapacity);
+        myMaxCellY = Arrays.copyOf(myMaxCellY, newCapacity);
+    }
+
+    private static class Cell {
+        private final int myX;
+        private final int myY;
+        private int[] myEntities;
+        private int mySize;
+
+        Cell(int x, int y) {
+            myX = x;
+            myY = y;
+            myEntities = new int[4];
+        }
+
+        void add(int entityID) {
+            if (mySize == myEntities.length)
+                myEntities = Arrays.copyOf(myEntities, mySize * 2);
+            myEntities[mySize++] = entityID;
+        }
+
+        boolean remove(int entityID) {
+            for (int k = 0; k < mySize; k++) {
+                if (myEntities[k] == entityID) {
+                    myEntities[k] = myEntities[--mySize];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
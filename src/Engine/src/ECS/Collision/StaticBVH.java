@@ -0,0 +1,208 @@
+package Engine.src.ECS.Collision;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable bounding volume hierarchy over entities that never move (those without a MotionComponent).
+ * It is built once when the level loads and only rebuilt if the static geometry itself changes, so moving entities can
+ * query it without static entities ever being tested against each other.
+ */
+public class StaticBVH {
+    private static final int LEAF_SIZE = 4;
+
+    private final int[] myEntities;
+    private final double[] myMinX;
+    private final double[] myMinY;
+    private final double[] myMaxX;
+    private final double[] myMaxY;
+    private final boolean[] myContained;
+
+    private final double[] myNodeMinX;
+    private final double[] myNodeMinY;
+    private final double[] myNodeMaxX;
+    private final double[] myNodeMaxY;
+    private final int[] myNodeStart;
+    private final int[] myNodeCount;
+    private final int[] myNodeRight;
+    private int myNodeTotal;
+
+    public StaticBVH(int[] entities, double[] x, double[] y, double[] width, double[] height, int count) {
+        myEntities = new int[count];
+        myMinX = new double[count];
+        myMinY = new double[count];
+        myMaxX = new double[count];
+        myMaxY = new double[count];
+        int maxID = -1;
+        for (int k = 0; k < count; k++) {
+            myEntities[k] = entities[k];
+            myMinX[k] = x[k];
+            myMinY[k] = y[k];
+            myMaxX[k] = x[k] + width[k];
+            myMaxY[k] = y[k] + height[k];
+            maxID = Math.max(maxID, entities[k]);
+        }
+        myContained = new boolean[maxID + 1];
+        for (int k = 0; k < count; k++)
+            myContained[myEntities[k]] = true;
+
+        int maxNodes = Math.max(1, 2 * count);
+        myNodeMinX = new double[maxNodes];
+        myNodeMinY = new double[maxNodes];
+        myNodeMaxX = new double[maxNodes];
+        myNodeMaxY = new double[maxNodes];
+        myNodeStart = new int[maxNodes];
+        myNodeCount = new int[maxNodes];
+        myNodeRight = new int[maxNodes];
+        if (count > 0)
+            build(0, count);
+    }
+
+    public boolean contains(int entityID) {
+        return entityID >= 0 && entityID < myContained.length && myContained[entityID];
+    }
+
+    public int size() {
+        return myEntities.length;
+    }
+
+    /**
+     * Reports every static entity whose bounds touch the given rectangle
+     */
+    public void query(double x, double y, double width, double height, IntConsumer visitor) {
+        if (myNodeTotal > 0)
+            query(0, x, y, x + width, y + height, visitor);
+    }
+
+    private void query(int node, double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        if (myNodeMinX[node] > maxX || myNodeMaxX[node] < minX || myNodeMinY[node] > maxY || myNodeMaxY[node] < minY)
+            return;
+        if (myNodeCount[node] > 0) {
+            int end = myNodeStart[node] + myNodeCount[node];
+            for (int k = myNodeStart[node]; k < end; k++) {
+                if (myMinX[k] <= maxX && myMaxX[k] >= minX && myMinY[k] <= maxY && myMaxY[k] >= minY)
+                    visitor.accept(myEntities[k]);
+            }
+            return;
+        }
+        query(node + 1, minX, minY, maxX, maxY, visitor);
+        query(myNodeRight[node], minX, minY, maxX, maxY, visitor);
+    }
+
+    /**
+     * @return true if some static entity whose bounds touch the given rectangle passes the test; stops at the first one
+     */
+    public boolean anyMatch(double x, double y, double width, double height, IntPredicate test) {
+        return myNodeTotal > 0 && anyMatch(0, x, y, x + width, y + height, test);
+    }
+
+    private boolean anyMatch(int node, double minX, double minY, double maxX, double maxY, IntPredicate test) {
+        if (myNodeMinX[node] > maxX || myNodeMaxX[node] < minX || myNodeMinY[node] > maxY || myNodeMaxY[node] < minY)
+            return false;
+        if (myNodeCount[node] > 0) {
+            int end = myNodeStart[node] + myNodeCount[node];
+            for (int k = myNodeStart[node]; k < end; k++) {
+                if (myMinX[k] <= maxX && myMaxX[k] >= minX && myMinY[k] <= maxY && myMaxY[k] >= minY &&
+                        test.test(myEntities[k]))
+                    return true;
+            }
+            return false;
+        }
+        return anyMatch(node + 1, minX, minY, maxX, maxY, test) || anyMatch(myNodeRight[node], minX, minY, maxX, maxY, test);
+    }
+
+    /**
+     * @return true if some static entity that the segment from (x0, y0) to (x1, y1) passes through passes the test;
+     * only the branches whose bounds the segment crosses are visited, and the search stops at the first match
+     */
+    public boolean anyOnSegment(double x0, double y0, double x1, double y1, IntPredicate test) {
+        return myNodeTotal > 0 && anyOnSegment(0, x0, y0, x1, y1, test);
+    }
+
+    private boolean anyOnSegment(int node, double x0, double y0, double x1, double y1, IntPredicate test) {
+        if (!SweptAABB.segmentHits(x0, y0, x1, y1, myNodeMinX[node], myNodeMinY[node], myNodeMaxX[node], myNodeMaxY[node]))
+            return false;
+        if (myNodeCount[node] > 0) {
+            int end = myNodeStart[node] + myNodeCount[node];
+            for (int k = myNodeStart[node]; k < end; k++) {
+                if (SweptAABB.segmentHits(x0, y0, x1, y1, myMinX[k], myMinY[k], myMaxX[k], myMaxY[k]) &&
+                        test.test(myEntities[k]))
+                    return true;
+            }
+            return false;
+        }
+        return anyOnSegment(node + 1, x0, y0, x1, y1, test) || anyOnSegment(myNodeRight[node], x0, y0, x1, y1, test);
+    }
+
+    //children are laid out depth first: the left child directly follows its parent
+    private int build(int start, int end) {
+        int node = myNodeTotal++;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int k = start; k < end; k++) {
+            minX = Math.min(minX, myMinX[k]);
+            minY = Math.min(minY, myMinY[k]);
+            maxX = Math.max(maxX, myMaxX[k]);
+            maxY = Math.max(maxY, myMaxY[k]);
+        }
+        myNodeMinX[node] = minX;
+        myNodeMinY[node] = minY;
+        myNodeMaxX[node] = maxX;
+        myNodeMaxY[node] = maxY;
+
+        if (end - start <= LEAF_SIZE) {
+            myNodeStart[node] = start;
+            myNodeCount[node] = end - start;
+            return node;
+        }
+        boolean splitOnX = maxX - minX >= maxY - minY;
+        int middle = (start + end) >>> 1;
+        partition(start, end - 1, middle, splitOnX);
+        build(start, middle);
+        myNodeRight[node] = build(middle, end);
+        return node;
+    }
+
+    //quickselect on bounds centers so everything left of middle has a smaller center than everything right of it
+    private void partition(int low, int high, int middle, boolean onX) {
+        while (low < high) {
+            double pivot = center((low + high) >>> 1, onX);
+            int left = low;
+            int right = high;
+            while (left <= right) {
+                while (center(left, onX) < pivot)
+                    left++;
+                while (center(right, onX) > pivot)
+                    right--;
+                if (left <= right)
+                    swap(left++, right--);
+            }
+            if (middle <= right)
+                high = right;
+            else if (middle >= left)
+                low = left;
+            else
+                return;
+        }
+    }
+
+    private double center(int index, boolean onX) {
+        return onX ? myMinX[index] + myMaxX[index] : myMinY[index] + myMaxY[index];
+    }
+
+    private void swap(int index1, int index2) {
+        int entity = myEntities[index1];
+        myEntities[index1] = myEntities[index2];
+        myEntities[index2] = entity;
+        swap(myMinX, index1, index2);
+        swap(myMinY, index1, index2);
+        swap(myMaxX, index1, index2);
+        swap(myMaxY, index1, index2);
+    }
+
+    private static void swap(double[] values, int index1, int index2) {
+        double value = values[index1];
+        values[index1] = values[index2];
+        values[index2] = value;
+    }
+}
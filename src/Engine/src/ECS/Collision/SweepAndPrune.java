@@ -0,0 +1,190 @@
+package Engine.src.ECS.Collision;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A sort-and-sweep broad phase along the X axis. The start and end of every entity's bounds are kept in one endpoint
+ * array that is re-sorted with an insertion sort before each query; since entities move little between frames the
+ * array is nearly sorted and the sort is close to linear. Suited to side-scrolling levels, whose moving entities are
+ * spread out along X.
+ */
+public class SweepAndPrune implements BroadPhase {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private boolean[] myTracked;
+    private double[] myMinX;
+    private double[] myMaxX;
+    private double[] myMinY;
+    private double[] myMaxY;
+    private int[] myEndpoints;
+    private int myEndpointCount;
+    private int[] myActive;
+    private int[] myActiveIndex;
+    private int myActiveCount;
+
+    public SweepAndPrune() {
+        myTracked = new boolean[INITIAL_CAPACITY];
+        myMinX = new double[INITIAL_CAPACITY];
+        myMaxX = new double[INITIAL_CAPACITY];
+        myMinY = new double[INITIAL_CAPACITY];
+        myMaxY = new double[INITIAL_CAPACITY];
+        myActiveIndex = new int[INITIAL_CAPACITY];
+        myEndpoints = new int[2 * INITIAL_CAPACITY];
+        myActive = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public void insert(int entityID, double x, double y, double width, double height) {
+        ensureCapacity(entityID + 1);
+        if (!myTracked[entityID]) {
+            myTracked[entityID] = true;
+            addEndpoint(startOf(entityID));
+            addEndpoint(endOf(entityID));
+        }
+        update(entityID, x, y, width, height);
+    }
+
+    @Override
+    public void update(int entityID, double x, double y, double width, double height) {
+        if (!contains(entityID)) {
+            insert(entityID, x, y, width, height);
+            return;
+        }
+        myMinX[entityID] = x;
+        myMaxX[entityID] = x + width;
+        myMinY[entityID] = y;
+        myMaxY[entityID] = y + height;
+    }
+
+    @Override
+    public void remove(int entityID) {
+        if (!contains(entityID))
+            return;
+        myTracked[entityID] = false;
+        int kept = 0;
+        for (int k = 0; k < myEndpointCount; k++) {
+            if (ownerOf(myEndpoints[k]) != entityID)
+                myEndpoints[kept++] = myEndpoints[k];
+        }
+        myEndpointCount = kept;
+    }
+
+    @Override
+    public boolean contains(int entityID) {
+        return entityID >= 0 && entityID < myTracked.length && myTracked[entityID];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(myTracked, false);
+        myEndpointCount = 0;
+    }
+
+    @Override
+    public void findPairs(PairVisitor visitor) {
+        sortEndpoints();
+        myActiveCount = 0;
+        for (int k = 0; k < myEndpointCount; k++) {
+            int endpoint = myEndpoints[k];
+            int entityID = ownerOf(endpoint);
+            if (isEnd(endpoint)) {
+                removeActive(entityID);
+                continue;
+            }
+            for (int a = 0; a < myActiveCount; a++) {
+                int other = myActive[a];
+                if (myMinY[other] <= myMaxY[entityID] && myMinY[entityID] <= myMaxY[other])
+                    visitor.visit(other, entityID);
+            }
+            addActive(entityID);
+        }
+    }
+
+    //the endpoints are only sorted for findPairs, so a region is checked against every start instead
+    @Override
+    public boolean anyMatch(double x, double y, double width, double height, IntPredicate test) {
+        for (int k = 0; k < myEndpointCount; k++) {
+            int endpoint = myEndpoints[k];
+            int entityID = ownerOf(endpoint);
+            if (!isEnd(endpoint) && myMinX[entityID] <= x + width && myMaxX[entityID] >= x &&
+                    myMinY[entityID] <= y + height && myMaxY[entityID] >= y && test.test(entityID))
+                return true;
+        }
+        return false;
+    }
+
+    //entities barely move between frames, so the endpoints are almost in order already
+    private void sortEndpoints() {
+        for (int k = 1; k < myEndpointCount; k++) {
+            int endpoint = myEndpoints[k];
+            int j = k - 1;
+            while (j >= 0 && comesAfter(myEndpoints[j], endpoint)) {
+                myEndpoints[j + 1] = myEndpoints[j];
+                j--;
+            }
+            myEndpoints[j + 1] = endpoint;
+        }
+    }
+
+    //starts sort before ends at the same coordinate so touching bounds are still reported
+    private boolean comesAfter(int endpoint1, int endpoint2) {
+        double value1 = valueOf(endpoint1);
+        double value2 = valueOf(endpoint2);
+        if (value1 != value2)
+            return value1 > value2;
+        return isEnd(endpoint1) && !isEnd(endpoint2);
+    }
+
+    private double valueOf(int endpoint) {
+        int entityID = ownerOf(endpoint);
+        return isEnd(endpoint) ? myMaxX[entityID] : myMinX[entityID];
+    }
+
+    private static int startOf(int entityID) {
+        return entityID << 1;
+    }
+
+    private static int endOf(int entityID) {
+        return (entityID << 1) | 1;
+    }
+
+    private static int ownerOf(int endpoint) {
+        return endpoint >>> 1;
+    }
+
+    private static boolean isEnd(int endpoint) {
+        return (endpoint & 1) == 1;
+    }
+
+    private void addActive(int entityID) {
+        myActiveIndex[entityID] = myActiveCount;
+        myActive[myActiveCount++] = entityID;
+    }
+
+    private void removeActive(int entityID) {
+        int index = myActiveIndex[entityID];
+        int last = myActive[--myActiveCount];
+        myActive[index] = last;
+        myActiveIndex[last] = index;
+    }
+
+    private void addEndpoint(int endpoint) {
+        if (myEndpointCount == myEndpoints.length)
+            myEndpoints = Arrays.copyOf(myEndpoints, myEndpoints.length * 2);
+        myEndpoints[myEndpointCount++] = endpoint;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (myTracked.length >= capacity)
+            return;
+        int newCapacity = Math.max(capacity, myTracked.length * 2);
+        myTracked = Arrays.copyOf(myTracked, newCapacity);
+        myMinX = Arrays.copyOf(myMinX, newCapacity);
+        myMaxX = Arrays.copyOf(myMaxX, newCapacity);
+        myMinY = Arrays.copyOf(myMinY, newCapacity);
+        myMaxY = Arrays.copyOf(myMaxY, newCapacity);
+        myActiveIndex = Arrays.copyOf(myActiveIndex, newCapacity);
+        myActive = Arrays.copyOf(myActive, newCapacity);
+    }
+}
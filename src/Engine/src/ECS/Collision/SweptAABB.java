@@ -0,0 +1,120 @@
+package Engine.src.ECS.Collision;
+
+/**
+ * Swept axis-aligned bounding box test: finds when, during one tick's displacement, a moving box first touches a
+ * stationary one and on which side. Unlike sampling positions at the end of the tick, a box moving further than the
+ * other is thick cannot pass through it unnoticed. The last sweep's result is kept in this object, so sweeping
+ * allocates nothing.
+ */
+public class SweptAABB {
+    private double myTime;
+    private double myNormalX;
+    private double myNormalY;
+
+    /**
+     * @return true if box 1, moved by (dx, dy) over the tick, touches box 2 at some fraction of the tick in [0, 1).
+     * getTime and getNormalX/Y then describe the first touch. Boxes that already overlap are not reported; that is
+     * left to the discrete test.
+     */
+    public boolean sweep(double x1, double y1, double width1, double height1, double dx, double dy,
+                         double x2, double y2, double width2, double height2) {
+        double entryX;
+        double exitX;
+        if (dx > 0) {
+            entryX = (x2 - (x1 + width1)) / dx;
+            exitX = (x2 + width2 - x1) / dx;
+        }
+        else if (dx < 0) {
+            entryX = (x2 + width2 - x1) / dx;
+            exitX = (x2 - (x1 + width1)) / dx;
+        }
+        else {
+            if (x1 + width1 <= x2 || x1 >= x2 + width2)
+                return false;
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        }
+
+        double entryY;
+        double exitY;
+        if (dy > 0) {
+            entryY = (y2 - (y1 + height1)) / dy;
+            exitY = (y2 + height2 - y1) / dy;
+        }
+        else if (dy < 0) {
+            entryY = (y2 + height2 - y1) / dy;
+            exitY = (y2 - (y1 + height1)) / dy;
+        }
+        else {
+            if (y1 + height1 <= y2 || y1 >= y2 + height2)
+                return false;
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        }
+
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        if (entry >= exit || entry < 0 || entry >= 1)
+            return false;
+        myTime = entry;
+        //the axis that starts touching last is the side that was hit
+        if (entryX > entryY) {
+            myNormalX = dx > 0 ? -1 : 1;
+            myNormalY = 0;
+        }
+        else {
+            myNormalX = 0;
+            myNormalY = dy > 0 ? -1 : 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the segment from (x0, y0) to (x1, y1) passes through or touches the box; a slab test, the sweep
+     * of a point rather than of a box
+     */
+    public static boolean segmentHits(double x0, double y0, double x1, double y1,
+                                      double minX, double minY, double maxX, double maxY) {
+        double enter = 0;
+        double leave = 1;
+        double dx = x1 - x0;
+        if (dx == 0) {
+            if (x0 < minX || x0 > maxX)
+                return false;
+        }
+        else {
+            double t1 = (minX - x0) / dx;
+            double t2 = (maxX - x0) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            leave = Math.min(leave, Math.max(t1, t2));
+            if (enter > leave)
+                return false;
+        }
+        double dy = y1 - y0;
+        if (dy == 0)
+            return y0 >= minY && y0 <= maxY;
+        double t1 = (minY - y0) / dy;
+        double t2 = (maxY - y0) / dy;
+        enter = Math.max(enter, Math.min(t1, t2));
+        leave = Math.min(leave, Math.max(t1, t2));
+        return enter <= leave;
+    }
+
+    /**
+     * @return the fraction of the displacement covered before the boxes touch
+     */
+    public double getTime() {
+        return myTime;
+    }
+
+    /**
+     * @return the x part of the unit normal of the side of box 2 that was hit, pointing back towards box 1
+     */
+    public double getNormalX() {
+        return myNormalX;
+    }
+
+    public double getNormalY() {
+        return myNormalY;
+    }
+}
@@ -2,68 +2,94 @@ package Engine.src.ECS;
 
 import Engine.src.Components.BasicComponent;
 
-import java.util.ArrayList;
-import java.util.Set;
-
 public class CollisionDetector {
+    //overlaps this small count as touching: entities pushed apart can be left that close by rounding
+    public static final double TOLERANCE = 1e-6;
+
     private EntityManager myEntityManager;
+    private double myNormalX;
+    private double myNormalY;
+    private double myDepth;
 
     public CollisionDetector(EntityManager entityManager) {
         myEntityManager = entityManager;
     }
 
-    public Integer[] getImpassableColliders(Integer entity, Set<Integer> allEntities) {
-        ArrayList<Integer> impassables = new ArrayList<>();
-/*        for (Integer other : allEntities) {
-            if (other.equals(entity))
-                continue;
-            var impassableComponent = myEntityManager.getComponent(other, ImpassableComponent.class);
-            if (impassableComponent != null && impassableComponent.getImpassable())
-                impassables.add(other);
-        }*/
-        return impassables.toArray(new Integer[0]);
-    }
-
-                           //FIXME do we need to detect whether the collision is right, top, left, or bottom based on solely the velocity angle?
-    public boolean collides(Integer collider, Integer target) {
+    /**
+     * The narrow phase: tests two entities' bounds once and, if they touch or overlap, works out the minimum
+     * translation vector, the shortest move of the collider that separates them. It lies along the axis the boxes
+     * overlap least on; getNormalX/Y give its direction (away from the target) and getDepth its length. A depth of 0
+     * means the boxes only touch.
+     * @return true if the entities touch or overlap
+     */
+    public boolean findContact(int collider, int target) {
         var basic1 = myEntityManager.getComponent(collider, BasicComponent.class);
         var basic2 = myEntityManager.getComponent(target, BasicComponent.class);
-        return basic1.getX() < basic2.getX() + basic2.getWidth() &&
-                basic1.getX() + basic2.getWidth() > basic2.getX() &&
-                basic1.getY() < basic2.getY() + basic2.getHeight() &&
-                basic1.getY() + basic1.getHeight() > basic2.getY();
-            /*return collideFromLeft(collider, target) ||
-                    //collideFromLeft(target, collider) ||
-                    //collideFromTop(target, collider) ||
-                    collideFromTop(collider, target);*/
-            //FIXME uncomment methods above
+        if (basic1 == null || basic2 == null)
+            return false;
+        return findContact(basic1.getX(), basic1.getY(), basic1.getWidth(), basic1.getHeight(),
+                basic2.getX(), basic2.getY(), basic2.getWidth(), basic2.getHeight());
+    }
+
+    public boolean findContact(double x1, double y1, double width1, double height1,
+                               double x2, double y2, double width2, double height2) {
+        double overlapX = Math.min(x1 + width1, x2 + width2) - Math.max(x1, x2);
+        double overlapY = Math.min(y1 + height1, y2 + height2) - Math.max(y1, y2);
+        if (overlapX < 0 || overlapY < 0 || overlapX == 0 && overlapY == 0) //corners meeting are not a contact
+            return false;
+        //ties go to the vertical axis, so a box resting on a corner is held up rather than pushed sideways
+        if (overlapX < overlapY) {
+            myNormalX = x1 + width1 / 2 < x2 + width2 / 2 ? -1 : 1;
+            myNormalY = 0;
+            myDepth = overlapX;
+        }
+        else {
+            myNormalX = 0;
+            myNormalY = y1 + height1 / 2 < y2 + height2 / 2 ? -1 : 1;
+            myDepth = overlapY;
+        }
+        return true;
+    }
+
+    public double getNormalX() {
+        return myNormalX;
+    }
+
+    public double getNormalY() {
+        return myNormalY;
+    }
+
+    public double getDepth() {
+        return myDepth;
+    }
+
+    /**
+     * @return true if the entities' bounds overlap; boxes that only touch do not collide
+     */
+    public boolean collides(int collider, int target) {
+        return findContact(collider, target) && myDepth > 0;
+    }
+
+    /**
+     * @return true if the boxes overlap by more than the rounding left behind when entities are pushed apart
+     */
+    public static boolean overlaps(double x1, double y1, double width1, double height1,
+                                   double x2, double y2, double width2, double height2) {
+        return Math.min(x1 + width1, x2 + width2) - Math.max(x1, x2) > TOLERANCE &&
+                Math.min(y1 + height1, y2 + height2) - Math.max(y1, y2) > TOLERANCE;
     }
 
-    //FIXME no collide from right (CollideFromRight event uses this method)
-    public boolean collideFromLeft(Integer collider, Integer target) {
-        var colliderComponent = myEntityManager.getComponent(collider, BasicComponent.class); //FIXME these two lines duplicated in all collision methods
-        var targetComponent = myEntityManager.getComponent(target, BasicComponent.class);
-        double width1 = colliderComponent.getWidth();
-        double x1 = colliderComponent.getX();
-        double x2 = targetComponent.getX();
-        double height1 = colliderComponent.getHeight();
-        double height2 = targetComponent.getHeight();
-        double y1 = colliderComponent.getY();
-        double y2 = targetComponent.getY();
-        return x1 + width1 >= x2 && !(y2 >= height1 + y1 || y2 <= y1 - height2);
+    /**
+     * @return true if the collider touches the target from the target's left (CollideFromRight passes the pair swapped)
+     */
+    public boolean collideFromLeft(int collider, int target) {
+        return findContact(collider, target) && myNormalX < 0;
     }
 
-    //FIXME no collide from bottom (CollideFromBottom event uses this method)
-    public boolean collideFromTop(Integer collider, Integer target) {
-        var colliderComponent = myEntityManager.getComponent(collider, BasicComponent.class);
-        var targetComponent = myEntityManager.getComponent(target, BasicComponent.class);
-        double height1 = colliderComponent.getHeight();
-        double y1 = colliderComponent.getY();
-        double y2 = targetComponent.getY();
-        double width1 = colliderComponent.getWidth();
-        double width2 = targetComponent.getWidth();
-        double x1 = colliderComponent.getX();
-        double x2 = targetComponent.getX();
-        return y1 + height1>= y2 && !(x2 >= width1 + x1 || x2 <= x1 - width2);
+    /**
+     * @return true if the collider touches the target from above (CollideFromBottom passes the pair swapped)
+     */
+    public boolean collideFromTop(int collider, int target) {
+        return findContact(collider, target) && myNormalY < 0;
     }
 }
@@ -1,15 +1,23 @@
 package Engine.src.ECS;
 
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.ComponentColumns;
 import Engine.src.Components.EnvironmentComponent;
 import Engine.src.Components.ImpassableComponent;
 import Engine.src.Components.MotionComponent;
 import Engine.src.Components.TagsComponent;
 import Engine.src.Controller.LevelManager;
+import Engine.src.ECS.Collision.BroadPhase;
+import Engine.src.ECS.Collision.ContactEvent;
+import Engine.src.ECS.Collision.ContactListener;
+import Engine.src.ECS.Collision.ContactTracker;
+import Engine.src.ECS.Collision.PairVisitor;
+import Engine.src.ECS.Collision.StaticBVH;
+import Engine.src.ECS.Collision.SweptAABB;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import groovy.lang.Script;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 
 /**
@@ -22,173 +30,382 @@ public class CollisionHandler {
     private LevelManager myLevelManager;
     private CollisionDetector myCollisionDetector;
     private Map<Pair<String>, Pair<String>> myCollisionResponses;
-    private Map<Integer, Set<Integer>> myPreviousCollisions;
-    private Map<Integer, Set<Integer>> myCurrentCollisions;
-    private Map<Integer, EnvironmentComponent> myEntityCurrentEnvironments;
+    private CollisionResponseTable myResponseTable;
+    private ContactTracker myContacts;
+    private List<ContactListener> myContactListeners;
+    private ContactListener myContactDispatcher;
+    private int[] myEntityCurrentEnvironments;
     private Binding mySetter;
+    private PairVisitor myPairCollector;
+    private IntConsumer myStaticCollector;
+    private int myQueryingEntity;
+    private int[] myCandidatePairs;
+    private int myCandidatePairCount;
+    private Integrator myIntegrator;
+    private double[] myDisplacementX;
+    private double[] myDisplacementY;
+    private SweptAABB mySweep;
+    private IntConsumer myImpactFinder;
+    private int mySweepingEntity;
+    private double mySweepX;
+    private double mySweepY;
+    private double mySweepWidth;
+    private double mySweepHeight;
+    private double mySweepDX;
+    private double mySweepDY;
+    private int myImpactEntity;
+    private double myImpactTime;
+    private double myImpactNormalX;
+    private int[] myImpacts;
+    private int myImpactCount;
 
     //FIXME
     private static final double MY_DEFAULT_ACCEL_Y = 5;
     private static final double MY_DEFAULT_ACCEL_X = 0;
     //FIXME
+    private static final int NO_ENVIRONMENT = -1;
+    //entities moving further than this in a step are swept against impassables instead of jumping to their new spot
+    public static final double CONTINUOUS_THRESHOLD = 16;
+    private static final int MAX_SWEEPS = 2;
 
     public CollisionHandler(EntityManager objectManager, LevelManager levelManager) {
         myEntityManager = objectManager;
         myLevelManager = levelManager;
         myCollisionResponses = new HashMap<>();
-        myPreviousCollisions = new HashMap<>();
-        myCurrentCollisions = new HashMap<>();
-        myEntityCurrentEnvironments = new HashMap<>();
+        myResponseTable = new CollisionResponseTable(myCollisionResponses);
+        myContacts = new ContactTracker();
+        myContactListeners = new ArrayList<>();
+        myContactDispatcher = this::dispatchContact;
+        myEntityCurrentEnvironments = new int[0];
         myCollisionDetector = new CollisionDetector(myEntityManager);
+        myPairCollector = this::addCandidatePair;
+        myStaticCollector = staticEntity -> addCandidatePair(myQueryingEntity, staticEntity);
+        myCandidatePairs = new int[64];
+        myIntegrator = new Integrator();
+        myDisplacementX = new double[64];
+        myDisplacementY = new double[64];
+        mySweep = new SweptAABB();
+        myImpactFinder = this::testImpact;
+        myImpacts = new int[16];
         mySetter = new Binding();
         mySetter.setProperty("entityManager", myEntityManager);
         mySetter.setProperty("levelManager", myLevelManager);
         mySetter.setProperty("collisionDetector", myCollisionDetector);
     }
 
-    //assumes collisionResponses and entities are nonnull
-    public void handleCollisions(Set<Integer> entities, Map<Pair<String>, Pair<String>> collisionResponses) {
+    /**
+     * Compiles the level's responses into a table indexed by tag id; call when the level loads
+     */
+    public void setCollisionResponses(Map<Pair<String>, Pair<String>> collisionResponses) {
         myCollisionResponses = collisionResponses;
-        myCurrentCollisions = new HashMap<>();
+        myResponseTable = new CollisionResponseTable(myCollisionResponses);
+    }
 
-        moveThenUpdateVelocities(entities);
+    /**
+     * Subscribes to the ENTER, STAY and EXIT contacts found by each call to handleCollisions. Listeners are told after
+     * every pair has been checked and every collision response has run.
+     */
+    public void addContactListener(ContactListener listener) {
+        myContactListeners.add(listener);
+    }
 
-        for (Integer entity1 : entities) {
-            for (Integer entity2 : entities) {
-                if (entity1 >= entity2) //prevent collisions from happening twice
-                    continue;
-                checkCollision(entity1, entity2);
-            }
-        }
+    public void removeContactListener(ContactListener listener) {
+        myContactListeners.remove(listener);
+    }
 
-        for (Integer entity : entities) {
-            if (notInteractingWithEnvironment(entity))
-                setInDefaultEnvironment(entity);
-        }
-        myPreviousCollisions = myCurrentCollisions;
+    public Integrator getIntegrator() {
+        return myIntegrator;
     }
 
-    private void moveThenUpdateVelocities(Set<Integer> entities) {
-        for (int id : entities){
-            var motionComponent = myEntityManager.getComponent(id, MotionComponent.class);
-            if (motionComponent != null) {
-                myEntityManager.move(id);
-                motionComponent.updateVelocity();
+    public ContactTracker getContacts() {
+        return myContacts;
+    }
+
+    public void handleCollisions() {
+        myContacts.beginFrame();
+
+        integrateAndMove();
+
+        findCandidatePairs();
+        for (int pair = 0; pair < myCandidatePairCount; pair++)
+            checkCollision(myCandidatePairs[2 * pair], myCandidatePairs[2 * pair + 1]);
+        for (int impact = 0; impact < myImpactCount; impact++)
+            checkImpact(myImpacts[2 * impact], myImpacts[2 * impact + 1]);
+
+        myContacts.report(myContactDispatcher);
+    }
+
+    //velocities are integrated for whole archetypes first, then each entity is moved, sweeping the ones that move far
+    private void integrateAndMove() {
+        myImpactCount = 0;
+        double dt = myEntityManager.getDeltaTime();
+        BroadPhase broadPhase = myEntityManager.getBroadPhase();
+        for (Archetype archetype : myEntityManager.getStorage().getArchetypes()) {
+            ComponentColumns motion = archetype.getColumns(MotionComponent.class);
+            if (motion == null)
+                continue;
+            if (myDisplacementX.length < archetype.size()) {
+                myDisplacementX = new double[Math.max(archetype.size(), 2 * myDisplacementX.length)];
+                myDisplacementY = new double[myDisplacementX.length];
+            }
+            myIntegrator.integrate(motion, archetype.size(), dt, myDisplacementX, myDisplacementY);
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null)
+                continue;
+            int[] entities = archetype.getEntities();
+            double[] x = bounds.getColumn(BasicComponent.X);
+            double[] y = bounds.getColumn(BasicComponent.Y);
+            double[] width = bounds.getColumn(BasicComponent.WIDTH);
+            double[] height = bounds.getColumn(BasicComponent.HEIGHT);
+            double[] xVelocity = motion.getColumn(MotionComponent.X_VELOCITY);
+            double[] yVelocity = motion.getColumn(MotionComponent.Y_VELOCITY);
+            for (int row = 0; row < archetype.size(); row++) {
+                double dx = myDisplacementX[row];
+                double dy = myDisplacementY[row];
+                if (Math.abs(dx) > CONTINUOUS_THRESHOLD || Math.abs(dy) > CONTINUOUS_THRESHOLD)
+                    sweepToImpassables(entities[row], row, x, y, width, height, dx, dy, xVelocity, yVelocity);
+                else {
+                    x[row] += dx;
+                    y[row] += dy;
+                }
+                broadPhase.update(entities[row], x[row], y[row], width[row], height[row]);
             }
         }
     }
 
-    private boolean notInteractingWithEnvironment(Integer entity) {
-        if (myCurrentCollisions.containsKey(entity)) {
-            Set<Integer> possibleEnvironments = myCurrentCollisions.get(entity);
-            for (Integer possibleEnvironment : possibleEnvironments) {
-                if (myEntityManager.getComponent(possibleEnvironment, EnvironmentComponent.class) != null)
-                    return true;
+    //moves the entity until it first touches an impassable, stops the motion into it and slides along it with what is
+    //left of the tick; only static geometry is swept against, moving impassables are still checked discretely
+    private void sweepToImpassables(int entity, int row, double[] x, double[] y, double[] width, double[] height,
+                                    double dx, double dy, double[] xVelocity, double[] yVelocity) {
+        for (int sweep = 0; sweep < MAX_SWEEPS && (dx != 0 || dy != 0); sweep++) {
+            findFirstImpact(entity, x[row], y[row], width[row], height[row], dx, dy);
+            if (myImpactEntity == -1)
+                break;
+            x[row] += dx * myImpactTime;
+            y[row] += dy * myImpactTime;
+            double remaining = 1 - myImpactTime;
+            if (myImpactNormalX != 0) {
+                dx = 0;
+                xVelocity[row] = 0;
+            }
+            else {
+                dy = 0;
+                yVelocity[row] = 0;
             }
+            dx *= remaining;
+            dy *= remaining;
+            addImpact(entity, myImpactEntity);
         }
-        return false;
+        x[row] += dx;
+        y[row] += dy;
     }
 
-    private void setInDefaultEnvironment(Integer entity) {
-        myEntityCurrentEnvironments.put(entity, null);
-        var motion = myEntityManager.getComponent(entity, MotionComponent.class);
-        if (motion != null) {
-            motion.setXAcceleration(MY_DEFAULT_ACCEL_X);
-            motion.setYAcceleration(MY_DEFAULT_ACCEL_Y);
-        }
+    private void findFirstImpact(int entity, double x, double y, double width, double height, double dx, double dy) {
+        mySweepingEntity = entity;
+        mySweepX = x;
+        mySweepY = y;
+        mySweepWidth = width;
+        mySweepHeight = height;
+        mySweepDX = dx;
+        mySweepDY = dy;
+        myImpactEntity = -1;
+        myImpactTime = 1;
+        myEntityManager.getStaticGeometry().query(Math.min(x, x + dx), Math.min(y, y + dy), width + Math.abs(dx),
+                height + Math.abs(dy), myImpactFinder);
     }
 
-    private void checkCollision(Integer entity1, Integer entity2) {
-        Pair<String>[] collisionTagPairs = findRelevantTagPairs(entity1, entity2);
-        if (!myCollisionDetector.collides(entity1, entity2))
+    private void testImpact(int other) {
+        if (other == mySweepingEntity)
             return;
-        if (collisionTagPairs.length != 0 ) {
+        if (!isBlockedBy(mySweepingEntity, other))
+            return;
+        var bounds = myEntityManager.getComponent(other, BasicComponent.class);
+        if (!mySweep.sweep(mySweepX, mySweepY, mySweepWidth, mySweepHeight, mySweepDX, mySweepDY,
+                bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight()) || mySweep.getTime() >= myImpactTime)
+            return;
+        myImpactEntity = other;
+        myImpactTime = mySweep.getTime();
+        myImpactNormalX = mySweep.getNormalX();
+    }
 
-            handleEnvironments(entity1, entity2);
-            handleEnvironments(entity2, entity1);
+    private void addImpact(int mover, int impassable) {
+        if (2 * myImpactCount + 2 > myImpacts.length)
+            myImpacts = Arrays.copyOf(myImpacts, myImpacts.length * 2);
+        myImpacts[2 * myImpactCount] = Math.min(mover, impassable);
+        myImpacts[2 * myImpactCount + 1] = Math.max(mover, impassable);
+        myImpactCount++;
+    }
+
+    //a swept entity ends the tick resting against what it hit rather than overlapping it, so the discrete test misses
+    //the contact; it is counted and responded to here instead
+    private void checkImpact(int entity1, int entity2) {
+        if (!myEntityManager.exists(entity1) || !myEntityManager.exists(entity2) || myContacts.isTouching(entity1, entity2))
+            return;
+        myContacts.touch(entity1, entity2);
+        respond(entity1, entity2);
+    }
 
-            for (Pair<String> tagPair : collisionTagPairs) {
-                Pair<String> responseListPair = myCollisionResponses.get(tagPair);
-                activateEvents(entity1, entity2, responseListPair.getItem1());
-                activateEvents(entity2, entity1, responseListPair.getItem2());
+    //static entities are never paired with each other: moving pairs come from the broad phase and
+    //moving-static pairs from querying the static geometry with each moving entity
+    private void findCandidatePairs() {
+        myCandidatePairCount = 0;
+        myEntityManager.getBroadPhase().findPairs(myPairCollector);
+        StaticBVH staticGeometry = myEntityManager.getStaticGeometry();
+        for (Archetype archetype : myEntityManager.getStorage().getArchetypes()) {
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null || !archetype.has(MotionComponent.class))
+                continue;
+            for (int row = 0; row < archetype.size(); row++) {
+                myQueryingEntity = archetype.getEntity(row);
+                staticGeometry.query(bounds.get(BasicComponent.X, row), bounds.get(BasicComponent.Y, row),
+                        bounds.get(BasicComponent.WIDTH, row), bounds.get(BasicComponent.HEIGHT, row), myStaticCollector);
             }
         }
+    }
 
-        dealWithImpassable(entity1, entity2);
-        dealWithImpassable(entity2, entity1);
+    //pairs are buffered so responses that create or remove entities cannot disturb the broad phase mid-query
+    private void addCandidatePair(int entity1, int entity2) {
+        if (2 * myCandidatePairCount + 2 > myCandidatePairs.length)
+            myCandidatePairs = Arrays.copyOf(myCandidatePairs, myCandidatePairs.length * 2);
+        myCandidatePairs[2 * myCandidatePairCount] = Math.min(entity1, entity2); //lower id first, as before
+        myCandidatePairs[2 * myCandidatePairCount + 1] = Math.max(entity1, entity2);
+        myCandidatePairCount++;
     }
 
-    //FIXME duplicated between parts of collision handler and parts of Entity manager
-    private void dealWithImpassable(Integer mover, Integer impassable) {
-        var impassableComponent = myEntityManager.getComponent(impassable, ImpassableComponent.class);
-        if (impassableComponent != null && impassableComponent.getImpassable()) {
-            var motion = myEntityManager.getComponent(mover, MotionComponent.class);
-            if (motion == null)
-                return;
-            motion.setYVelocity(0);
-            /*if (myCollisionDetector.collideFromTop(mover, impassable) && motion.getYVelocity() > 0
-                    || myCollisionDetector.collideFromTop(impassable, mover) && motion.getYVelocity() < 0) {
-                motion.setYVelocity(0);
-            }
-            else if (myCollisionDetector.collideFromLeft(mover, impassable) && motion.getXVelocity() > 0
-                    || myCollisionDetector.collideFromLeft(impassable, mover) && motion.getXVelocity() < 0) {
-                motion.setXVelocity(0);
-            }*/
+    private void dispatchContact(ContactEvent event, int entity1, int entity2) {
+        handleEnvironment(event, entity1, entity2);
+        handleEnvironment(event, entity2, entity1);
+        for (int k = 0; k < myContactListeners.size(); k++)
+            myContactListeners.get(k).onContact(event, entity1, entity2);
+    }
+
+    private void setInDefaultEnvironment(int entity) {
+        myEntityCurrentEnvironments[entity] = NO_ENVIRONMENT;
+        var motion = myEntityManager.getComponent(entity, MotionComponent.class);
+        if (motion != null) {
+            motion.setXAcceleration(MY_DEFAULT_ACCEL_X);
+            motion.setYAcceleration(MY_DEFAULT_ACCEL_Y);
         }
     }
 
-    private Pair<String>[] findRelevantTagPairs(Integer entity1, Integer entity2) {
-        ArrayList<Pair<String>> tagPairs = new ArrayList<>();
+    private void checkCollision(int entity1, int entity2) {
+        if (!myEntityManager.exists(entity1) || !myEntityManager.exists(entity2)) //removed by an earlier response
+            return;
+        //touching counts, so an entity resting on an impassable stays in contact with it every tick
+        if (!myCollisionDetector.findContact(entity1, entity2))
+            return;
+        myContacts.touch(entity1, entity2);
+        resolvePenetration(entity1, entity2, myCollisionDetector.getNormalX(), myCollisionDetector.getNormalY(),
+                myCollisionDetector.getDepth());
+        respond(entity1, entity2);
+    }
 
+    private void respond(int entity1, int entity2) {
         var tags1 = myEntityManager.getComponent(entity1, TagsComponent.class);
         var tags2 = myEntityManager.getComponent(entity2, TagsComponent.class);
-
         if (tags1 == null || tags2 == null)
-            return tagPairs.toArray(new Pair[0]);
+            return;
 
-        for (String tag1 : tags1.getTags()) {
-            for (String tag2 : tags2.getTags()) {
-                var tagPair = new Pair(tag1, tag2);
-                if (myCollisionResponses.containsKey(tagPair))
-                    tagPairs.add(tagPair);
+        boolean responded = false;
+        for (int tag1 = tags1.nextTagID(0); tag1 != -1; tag1 = tags1.nextTagID(tag1 + 1)) {
+            int index1 = myResponseTable.indexOf(tag1);
+            if (index1 == -1)
+                continue;
+            for (int tag2 = tags2.nextTagID(0); tag2 != -1; tag2 = tags2.nextTagID(tag2 + 1)) {
+                int index2 = myResponseTable.indexOf(tag2);
+                if (index2 == -1 || !myResponseTable.hasResponse(index1, index2))
+                    continue;
+                if (!responded) {
+                    //lets a response tell the first frame of a contact ("ENTER") from the ones after it ("STAY")
+                    mySetter.setProperty("contact", myContacts.getContact(entity1, entity2).name());
+                    responded = true;
+                }
+                activateEvents(entity1, entity2, myResponseTable.getFirstResponse(index1, index2));
+                activateEvents(entity2, entity1, myResponseTable.getSecondResponse(index1, index2));
             }
         }
+    }
 
-        return tagPairs.toArray(new Pair[0]);
+    //pushes whichever of the two is blocked by the other out along the contact normal, sharing the push if both are,
+    //and stops its motion into the other so it comes to rest against it instead of sinking in and bouncing out
+    private void resolvePenetration(int entity1, int entity2, double normalX, double normalY, double depth) {
+        boolean firstBlocked = isBlockedBy(entity1, entity2);
+        boolean secondBlocked = isBlockedBy(entity2, entity1);
+        double share = firstBlocked && secondBlocked ? depth / 2 : depth;
+        if (firstBlocked)
+            pushOut(entity1, normalX, normalY, share);
+        if (secondBlocked)
+            pushOut(entity2, -normalX, -normalY, share);
     }
 
-    private void handleEnvironments(Integer current, Integer other) {
-        myCurrentCollisions.putIfAbsent(current, new HashSet<>());
-        myCurrentCollisions.get(current).add(other);
-        var currentMotionComponent = myEntityManager.getComponent(current, MotionComponent.class);
-        var otherEnvironmentComponent = myEntityManager.getComponent(current, EnvironmentComponent.class);
+    private boolean isBlockedBy(int mover, int other) {
+        var impassable = myEntityManager.getComponent(other, ImpassableComponent.class);
+        return impassable != null && impassable.getImpassable() &&
+                myEntityManager.getComponent(mover, MotionComponent.class) != null;
+    }
 
-        if (currentMotionComponent == null || otherEnvironmentComponent == null)
-            return;
+    private void pushOut(int mover, double normalX, double normalY, double distance) {
+        var basic = myEntityManager.getComponent(mover, BasicComponent.class);
+        basic.setX(basic.getX() + normalX * distance);
+        basic.setY(basic.getY() + normalY * distance);
+        myEntityManager.refreshBounds(mover);
+        var motion = myEntityManager.getComponent(mover, MotionComponent.class);
+        if (motion.getXVelocity() * normalX < 0)
+            motion.setXVelocity(0);
+        if (motion.getYVelocity() * normalY < 0)
+            motion.setYVelocity(0);
+    }
 
-        if (myPreviousCollisions.containsKey(current) && !myPreviousCollisions.get(current).contains(other))
-            setInEnvironment(current, currentMotionComponent, otherEnvironmentComponent);
+    //an environment acts on the entities moving through it: entering one damps the mover and takes on its
+    //acceleration, leaving the one the mover is in puts it back under the default acceleration
+    private void handleEnvironment(ContactEvent event, int mover, int environment) {
+        if (event == ContactEvent.STAY)
+            return;
+        ensureEnvironmentCapacity(Math.max(mover, environment) + 1);
+        if (event == ContactEvent.EXIT) {
+            if (myEntityCurrentEnvironments[mover] != environment)
+                return;
+            if (myEntityManager.exists(mover))
+                setInDefaultEnvironment(mover);
+            else
+                myEntityCurrentEnvironments[mover] = NO_ENVIRONMENT;
+            return;
+        }
+        var moverMotionComponent = myEntityManager.getComponent(mover, MotionComponent.class);
+        var environmentComponent = myEntityManager.getComponent(environment, EnvironmentComponent.class);
+        if (moverMotionComponent != null && environmentComponent != null)
+            setInEnvironment(mover, environment, moverMotionComponent, environmentComponent);
     }
 
-    private void setInEnvironment(Integer entity, MotionComponent motion, EnvironmentComponent environment) {
-        myEntityCurrentEnvironments.put(entity, environment);
+    private void setInEnvironment(int entity, int environmentEntity, MotionComponent motion,
+                                  EnvironmentComponent environment) {
+        myEntityCurrentEnvironments[entity] = environmentEntity;
 
         double scaleFactor = environment.getVelDamper();
         motion.setXVelocity(scaleFactor * motion.getXVelocity());
         motion.setYVelocity(scaleFactor * motion.getYVelocity());
+        motion.setXAcceleration(environment.getAccelX());
+        motion.setYAcceleration(environment.getAccelY());
+    }
+
+    private void ensureEnvironmentCapacity(int capacity) {
+        if (myEntityCurrentEnvironments.length >= capacity)
+            return;
+        int oldCapacity = myEntityCurrentEnvironments.length;
+        myEntityCurrentEnvironments = Arrays.copyOf(myEntityCurrentEnvironments, Math.max(capacity, 2 * oldCapacity));
+        Arrays.fill(myEntityCurrentEnvironments, oldCapacity, myEntityCurrentEnvironments.length, NO_ENVIRONMENT);
     }
 
     //TODO fix if Triggers.Events are changed
-    private void activateEvents(Integer current, Integer other, String responses) {
+    private void activateEvents(int current, int other, String responses) {
             //FIXME delegate rest of method to ObjectEvent/GameEvent and uncomment code above
-            GroovyShell shell = new GroovyShell(mySetter);
             mySetter.setProperty("ID", current);
             mySetter.setProperty("otherID", other);
-            Script script = shell.parse(responses);
-            script.run();
+            myEntityManager.getScriptCache().run(responses, mySetter);
     }
 
     public void addCollision(String type1, String type2, String response1, String response2){
         myCollisionResponses.put(new Pair<>(type1, type2), new Pair<>(response1, response2));
+        myResponseTable = new CollisionResponseTable(myCollisionResponses);
     }
 }
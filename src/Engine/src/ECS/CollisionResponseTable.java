@@ -0,0 +1,72 @@
+package Engine.src.ECS;
+
+import Engine.src.Components.TagRegistry;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The collision responses of a level compiled into a dense table indexed by tag. Only tags that appear in some response
+ * get a row, so the table stays small even if the game uses many tags.
+ *
+ * Lookups are oriented: getFirstResponse(a, b) is the response for the entity tagged a when it hits one tagged b.
+ */
+public class CollisionResponseTable {
+    private final int[] myIndexByTagID;
+    private final int myTagCount;
+    private final String[] myFirstResponses;
+    private final String[] mySecondResponses;
+    private final boolean[] myHasResponse;
+
+    public CollisionResponseTable(Map<Pair<String>, Pair<String>> collisionResponses) {
+        int tagCount = 0;
+        myIndexByTagID = new int[TagRegistry.count() + 2 * collisionResponses.size()];
+        Arrays.fill(myIndexByTagID, -1);
+        for (Pair<String> tagPair : collisionResponses.keySet()) {
+            for (String tag : tagPair) {
+                int tagID = TagRegistry.idOf(tag);
+                if (myIndexByTagID[tagID] == -1)
+                    myIndexByTagID[tagID] = tagCount++;
+            }
+        }
+        myTagCount = tagCount;
+        myFirstResponses = new String[tagCount * tagCount];
+        mySecondResponses = new String[tagCount * tagCount];
+        myHasResponse = new boolean[tagCount * tagCount];
+
+        for (var response : collisionResponses.entrySet()) {
+            int index1 = myIndexByTagID[TagRegistry.idOf(response.getKey().getItem1())];
+            int index2 = myIndexByTagID[TagRegistry.idOf(response.getKey().getItem2())];
+            put(index2, index1, response.getValue().getItem2(), response.getValue().getItem1());
+            put(index1, index2, response.getValue().getItem1(), response.getValue().getItem2());
+        }
+    }
+
+    /**
+     * @return the row/column of a tag in the table, or -1 if no response mentions the tag
+     */
+    public int indexOf(int tagID) {
+        if (tagID < 0 || tagID >= myIndexByTagID.length)
+            return -1;
+        return myIndexByTagID[tagID];
+    }
+
+    public boolean hasResponse(int index1, int index2) {
+        return myHasResponse[index1 * myTagCount + index2];
+    }
+
+    public String getFirstResponse(int index1, int index2) {
+        return myFirstResponses[index1 * myTagCount + index2];
+    }
+
+    public String getSecondResponse(int index1, int index2) {
+        return mySecondResponses[index1 * myTagCount + index2];
+    }
+
+    private void put(int index1, int index2, String firstResponse, String secondResponse) {
+        int cell = index1 * myTagCount + index2;
+        myFirstResponses[cell] = firstResponse;
+        mySecondResponses[cell] = secondResponse;
+        myHasResponse[cell] = true;
+    }
+}
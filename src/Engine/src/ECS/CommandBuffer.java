@@ -0,0 +1,68 @@
+package Engine.src.ECS;
+
+import Engine.src.Components.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Changes to the entities that are recorded while something may still be iterating over them (systems running in
+ * parallel, a frame in progress) and applied later, in the order they were recorded, at a point where nothing else is
+ * touching the EntityManager.
+ */
+public class CommandBuffer {
+    private final List<Consumer<EntityManager>> myCommands;
+
+    public CommandBuffer() {
+        myCommands = new ArrayList<>();
+    }
+
+    public void add(Consumer<EntityManager> command) {
+        myCommands.add(command);
+    }
+
+    /**
+     * Queues the creation of an entity; get a free id for it from EntityManager.reserveID
+     */
+    public void create(int entityID, Map<Class<? extends Component>, Component> components) {
+        add(entityManager -> entityManager.create(entityID, components));
+    }
+
+    /**
+     * Queues the removal of an entity, whatever lives it has left
+     */
+    public void destroy(int entityID) {
+        add(entityManager -> entityManager.destroy(entityID));
+    }
+
+    public void die(int entityID) {
+        add(entityManager -> entityManager.die(entityID));
+    }
+
+    public void addComponent(int entityID, Component component) {
+        add(entityManager -> entityManager.addComponent(entityID, component));
+    }
+
+    /**
+     * Runs every recorded command against the manager, then empties the buffer
+     */
+    public void apply(EntityManager entityManager) {
+        for (Consumer<EntityManager> command : myCommands)
+            command.accept(entityManager);
+        myCommands.clear();
+    }
+
+    public void clear() {
+        myCommands.clear();
+    }
+
+    public int size() {
+        return myCommands.size();
+    }
+
+    public boolean isEmpty() {
+        return myCommands.isEmpty();
+    }
+}
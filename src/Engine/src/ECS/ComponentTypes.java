@@ -0,0 +1,29 @@
+package Engine.src.ECS;
+
+import Engine.src.Components.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out a small, stable integer id for every component class so archetypes can find a column by array index.
+ */
+public final class ComponentTypes {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private static final ClassValue<Integer> IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_ID.getAndIncrement();
+        }
+    };
+
+    private ComponentTypes() {
+    }
+
+    public static int idOf(Class<? extends Component> componentClass) {
+        return IDS.get(componentClass);
+    }
+
+    public static int count() {
+        return NEXT_ID.get();
+    }
+}
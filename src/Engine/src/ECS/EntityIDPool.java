@@ -0,0 +1,55 @@
+package Engine.src.ECS;
+
+import java.util.Arrays;
+
+/**
+ * Hands out entity ids, reusing the ids of removed entities before new ones so the id range, and every array indexed
+ * by id, stays as small as the largest number of entities alive at once.
+ */
+public class EntityIDPool {
+    private int[] myFree;
+    private int myFreeCount;
+    private int myNext;
+
+    /**
+     * @param firstUnused the lowest id that no entity has been given yet
+     */
+    public EntityIDPool(int firstUnused) {
+        myFree = new int[16];
+        myNext = firstUnused;
+    }
+
+    public synchronized int allocate() {
+        if (myFreeCount > 0)
+            return myFree[--myFreeCount];
+        return myNext++;
+    }
+
+    /**
+     * Marks an id chosen by the caller (e.g. by a Create event) as taken
+     */
+    public synchronized void reserve(int entityID) {
+        if (entityID >= myNext) {
+            myNext = entityID + 1;
+            return;
+        }
+        for (int k = 0; k < myFreeCount; k++) {
+            if (myFree[k] == entityID) {
+                myFree[k] = myFree[--myFreeCount];
+                return;
+            }
+        }
+    }
+
+    public synchronized void release(int entityID) {
+        if (entityID < 0 || entityID >= myNext)
+            return;
+        if (myFreeCount == myFree.length)
+            myFree = Arrays.copyOf(myFree, 2 * myFreeCount);
+        myFree[myFreeCount++] = entityID;
+    }
+
+    public synchronized int getFreeCount() {
+        return myFreeCount;
+    }
+}
@@ -1,43 +1,103 @@
 package Engine.src.ECS;
 
 import Engine.src.Components.*;
+import Engine.src.Controller.ScriptCache;
+import Engine.src.ECS.Collision.BroadPhase;
+import Engine.src.ECS.Collision.SpatialHash;
+import Engine.src.ECS.Collision.StaticBVH;
+import Engine.src.Utilities.VectorMath;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import groovy.lang.Script;
 
-import java.awt.geom.Line2D;
+import java.util.BitSet;
 import java.util.Map;
+import java.util.function.IntPredicate;
 
 public class EntityManager {
-    private Map<Integer, Map<Class<? extends Component>, Component>> myEntityMap;
+    private ArchetypeStorage myStorage;
     private double myStepTime;
+    private double myDeltaTime;
+    private ScriptCache myScriptCache;
+    private BroadPhase myBroadPhase;
+    private StaticBVH myStaticGeometry;
+    private LineOfSight myLineOfSight;
+    private boolean myStaticGeometryChanged;
+    private EntityIDPool myIDs;
+    private CommandBuffer myStructuralChanges;
+    private BitSet myDying;
+    private BitSet myRespawning;
+    private boolean myDeferringChanges;
 
     public EntityManager(Map<Integer, Map<Class<? extends Component>, Component>> entityMap, double stepTime) {
-        myEntityMap = entityMap;
+        this(entityMap, stepTime, new ScriptCache());
+    }
+
+    public EntityManager(Map<Integer, Map<Class<? extends Component>, Component>> entityMap, double stepTime,
+                         ScriptCache scriptCache) {
+        myStorage = new ArchetypeStorage(entityMap);
         myStepTime = stepTime;
+        myDeltaTime = 1;
+        myScriptCache = scriptCache;
+        myBroadPhase = new SpatialHash();
+        trackAllBounds();
+        myStaticGeometry = buildStaticGeometry();
+        myLineOfSight = new LineOfSight(this);
+        myIDs = new EntityIDPool(entityMap.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1);
+        myStructuralChanges = new CommandBuffer();
+        myDying = new BitSet();
+        myRespawning = new BitSet();
+    }
+
+    /**
+     * From here until endFrame, entities are not created, removed or given new components straight away: the changes
+     * are queued and applied together by endFrame, so anything iterating over the entities meanwhile never sees them
+     * change under it. Entities removed during the frame stop existing (see exists) at once, but one that dies with a
+     * life left goes on existing, since it will respawn.
+     */
+    public void beginFrame() {
+        myDeferringChanges = true;
+        myLineOfSight.invalidate();
+    }
+
+    /**
+     * Applies the structural changes queued since beginFrame, in the order they were made
+     */
+    public void endFrame() {
+        myDeferringChanges = false;
+        //a change that throws drops the rest rather than leaving them to be applied again next frame
+        try {
+            myStructuralChanges.apply(this);
+        }
+        finally {
+            myStructuralChanges.clear();
+            myDying.clear();
+            myRespawning.clear();
+        }
+    }
+
+    /**
+     * @return an unused entity id, recycled from removed entities where possible; safe to call from any thread
+     */
+    public int reserveID() {
+        return myIDs.allocate();
     }
 
     public void addComponent(int entityID, Component component) {
-        try {
-            var components = getAllComponents(entityID);
-            components.put(component.getClass(), component);
-            myEntityMap.put(entityID, components);
+        if (myDeferringChanges) {
+            myStructuralChanges.addComponent(entityID, component);
+            return;
         }
-        catch (NoEntityException e) {
+        if (!myStorage.contains(entityID)) {
             System.out.println("Entity " + entityID + " does not exist");
+            return;
         }
+        myStorage.addComponent(entityID, component);
+        refreshBounds(entityID);
     }
 
     //can return null
     public <T extends Component> T getComponent(int entityID, Class<T> componentClass){
         try {
-            var components = getAllComponents(entityID);
-            for (Class<?> componentName: components.keySet()) {
-                if (componentName.equals(componentClass)) {
-                    return (T) components.get(componentName);
-                }
-            }
-            return null;
+            return getAllComponents(entityID).get(myStorage.getRow(entityID), componentClass);
         }
         catch(NoEntityException e) {
             System.out.println("Entity " + entityID + " does not exist");
@@ -45,37 +105,165 @@ public class EntityManager {
         }
     }
 
-    private boolean hasComponent(int entityID, Class<?> componentClass){
-        return myEntityMap.containsKey(componentClass);
+    private boolean hasComponent(int entityID, Class<? extends Component> componentClass){
+        Archetype archetype = myStorage.getArchetype(entityID);
+        return archetype != null && archetype.has(componentClass);
     }
 
-    private Map<Class<? extends Component>, Component> getAllComponents(int entityID) throws NoEntityException {
-        Map<Class<? extends Component>, Component> components = myEntityMap.get(entityID);
+    private Archetype getAllComponents(int entityID) throws NoEntityException {
+        Archetype components = myStorage.getArchetype(entityID);
         if (components == null)
             throw new NoEntityException("Entity " + entityID + " does not exist");
         return components;
     }
 
+    public boolean exists(int entityID) {
+        return myStorage.contains(entityID) && !myDying.get(entityID);
+    }
+
+    public ArchetypeStorage getStorage() {
+        return myStorage;
+    }
+
+    public ScriptCache getScriptCache() {
+        return myScriptCache;
+    }
+
+    public BroadPhase getBroadPhase() {
+        return myBroadPhase;
+    }
+
+    public void setBroadPhase(BroadPhase broadPhase) {
+        myBroadPhase = broadPhase;
+        myBroadPhase.clear();
+        trackAllBounds();
+    }
+
+    /**
+     * @return the entities that cannot move (no MotionComponent), rebuilt only if that geometry has changed
+     */
+    public StaticBVH getStaticGeometry() {
+        if (myStaticGeometryChanged) {
+            myStaticGeometry = buildStaticGeometry();
+            myStaticGeometryChanged = false;
+        }
+        return myStaticGeometry;
+    }
+
+    /**
+     * Tells the broad phase or static geometry that an entity's bounds may have changed. Changes made through the
+     * EntityManager are tracked already; this is only needed after writing to a BasicComponent directly.
+     */
+    public void refreshBounds(int entityID) {
+        if (myStaticGeometry.contains(entityID))
+            myStaticGeometryChanged = true;
+        BasicComponent basic = myStorage.getComponent(entityID, BasicComponent.class);
+        if (basic == null) {
+            myBroadPhase.remove(entityID);
+        }
+        else if (isStatic(entityID)) {
+            myBroadPhase.remove(entityID);
+            myStaticGeometryChanged = true;
+        }
+        else {
+            myBroadPhase.update(entityID, basic.getX(), basic.getY(), basic.getWidth(), basic.getHeight());
+        }
+    }
+
+    private boolean isStatic(int entityID) {
+        return !hasComponent(entityID, MotionComponent.class);
+    }
+
+    //only moving entities go in the broad phase; the rest are in the static geometry
+    private void trackAllBounds() {
+        for (Archetype archetype : myStorage.getArchetypes()) {
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null || !archetype.has(MotionComponent.class))
+                continue;
+            for (int row = 0; row < archetype.size(); row++) {
+                myBroadPhase.insert(archetype.getEntity(row), bounds.get(BasicComponent.X, row),
+                        bounds.get(BasicComponent.Y, row), bounds.get(BasicComponent.WIDTH, row),
+                        bounds.get(BasicComponent.HEIGHT, row));
+            }
+        }
+    }
+
+    private StaticBVH buildStaticGeometry() {
+        int count = 0;
+        int[] entities = new int[myStorage.size()];
+        double[] x = new double[myStorage.size()];
+        double[] y = new double[myStorage.size()];
+        double[] width = new double[myStorage.size()];
+        double[] height = new double[myStorage.size()];
+        for (Archetype archetype : myStorage.getArchetypes()) {
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null || archetype.has(MotionComponent.class))
+                continue;
+            System.arraycopy(archetype.getEntities(), 0, entities, count, archetype.size());
+            System.arraycopy(bounds.getColumn(BasicComponent.X), 0, x, count, archetype.size());
+            System.arraycopy(bounds.getColumn(BasicComponent.Y), 0, y, count, archetype.size());
+            System.arraycopy(bounds.getColumn(BasicComponent.WIDTH), 0, width, count, archetype.size());
+            System.arraycopy(bounds.getColumn(BasicComponent.HEIGHT), 0, height, count, archetype.size());
+            count += archetype.size();
+        }
+        return new StaticBVH(entities, x, y, width, height, count);
+    }
+
     public void die(int entityID) {
         //TODO error checking, does removing a non-existent Entity work
+        if (myDeferringChanges) {
+            if (exists(entityID) && !myRespawning.get(entityID)) {
+                //an entity with a life left comes back, so it goes on existing for the rest of the frame
+                if (hasLivesLeft(entityID))
+                    myRespawning.set(entityID);
+                else
+                    myDying.set(entityID);
+                myStructuralChanges.die(entityID);
+            }
+            return;
+        }
         if(hasComponent(entityID, LivesComponent.class)){
             LivesComponent lives = getComponent(entityID, LivesComponent.class);
-            if (lives.expired()) myEntityMap.remove(entityID);
+            if (lives.expired()) remove(entityID);
             else {
                 respawn(entityID, lives.getRespawnInstructions());
                 lives.removeLife();
+                refreshBounds(entityID);
             }
         }
-        else myEntityMap.remove(entityID);
+        else remove(entityID);
+    }
+
+    private boolean hasLivesLeft(int entityID) {
+        LivesComponent lives = getComponent(entityID, LivesComponent.class);
+        return lives != null && !lives.expired();
+    }
+
+    /**
+     * Removes an entity outright, without using up a life
+     */
+    public void destroy(int entityID) {
+        if (myDeferringChanges) {
+            if (exists(entityID)) {
+                myDying.set(entityID);
+                myStructuralChanges.destroy(entityID);
+            }
+            return;
+        }
+        remove(entityID);
+    }
+
+    private void remove(int entityID) {
+        if (myStorage.remove(entityID) != null)
+            myIDs.release(entityID);
+        refreshBounds(entityID);
     }
 
     private void respawn(int entityID, String respawnInstructions){
         Binding binding = new Binding();
         binding.setProperty("ID", entityID);
         binding.setProperty("entityManager", this);
-        GroovyShell shell = new GroovyShell(binding);
-        Script instructions = shell.parse(respawnInstructions);
-        instructions.run();
+        myScriptCache.run(respawnInstructions, binding);
     }
 
     public void setToCheckpoint(int entityID){
@@ -83,21 +271,39 @@ public class EntityManager {
         BasicComponent basic = getComponent(entityID, BasicComponent.class);
         basic.setX(checkpoint.getX());
         basic.setY(checkpoint.getY());
+        refreshBounds(entityID);
     }
 
     public void create(int entityID, Map<Class<? extends Component>, Component> components) {
         //TODO error checking
-        myEntityMap.put(entityID, components);
+        myIDs.reserve(entityID);
+        if (myDeferringChanges) {
+            myStructuralChanges.create(entityID, components);
+            return;
+        }
+        myStorage.create(entityID, components);
+        refreshBounds(entityID);
+    }
+
+    /**
+     * Creates an entity under a recycled or new id
+     * @return the id, usable right away even if the entity itself only appears at the end of the frame
+     */
+    public int create(Map<Class<? extends Component>, Component> components) {
+        int entityID = reserveID();
+        create(entityID, components);
+        return entityID;
     }
 
     public void move(int entityID) {
         var motionComponent = getComponent(entityID, MotionComponent.class);
         var basicComponent = getComponent(entityID, BasicComponent.class);
         if (motionComponent != null && basicComponent != null) {
-            double newX = motionComponent.getNewX(basicComponent.getX());
-            double newY = motionComponent.getNewY(basicComponent.getY());
+            double newX = motionComponent.getNewX(basicComponent.getX(), myDeltaTime);
+            double newY = motionComponent.getNewY(basicComponent.getY(), myDeltaTime);
             basicComponent.setX(newX);
             basicComponent.setY(newY);
+            refreshBounds(entityID);
         }
     }
 
@@ -203,6 +409,10 @@ public class EntityManager {
         }
     }
 
+    /**
+     * Moves the entity by its movement velocity for one tick, scaled like all motion by the delta time so it covers
+     * the same distance per second at any tick rate; meant to be called once a tick
+     */
     //TODO remove duplication between horizontal and vertical
     public void moveVertical(Integer entity, boolean down) {
         var basic = getComponent(entity, BasicComponent.class);
@@ -213,9 +423,12 @@ public class EntityManager {
         double yPos = basic.getY();
         double yVel = motion.getMovementYVelocity();
         int direction = down ? 1 : -1;
-        setY(entity, yPos + direction * yVel * myStepTime);
+        setY(entity, yPos + direction * yVel * myStepTime * myDeltaTime);
     }
 
+    /**
+     * Moves the entity by its movement velocity for one tick, scaled by the delta time as in moveVertical
+     */
     //TODO remove duplication between horizontal and vertical
     public void moveHorizontal(Integer entity, boolean right) {
         var basic = getComponent(entity, BasicComponent.class);
@@ -226,39 +439,59 @@ public class EntityManager {
         double xPos = basic.getX();
         double xVel = motion.getMovementXVelocity();
         int direction = right ? 1 : -1;
-        setX(entity, xPos + direction * xVel * myStepTime);
+        setX(entity, xPos + direction * xVel * myStepTime * myDeltaTime);
     }
 
-    //TODO remove duplication between setY and also in collision handler and detector
+    /**
+     * Moves the entity horizontally unless that would push it into an impassable it was not already inside
+     */
     public void setX(int obj, double newX){
         BasicComponent basic = getComponent(obj, BasicComponent.class);
-        double currentX = basic.getX();
-        double finalX = newX;
-        CollisionDetector collisionDetector = new CollisionDetector(this);
-        Integer[] impassableColliders = collisionDetector.getImpassableColliders(obj, myEntityMap.keySet());
-        for(Integer impassable : impassableColliders){
-            if ((collisionDetector.collideFromLeft(impassable, obj) && newX > currentX) ||
-                (collisionDetector.collideFromLeft(obj, impassable) && newX < currentX)) {
-                finalX = currentX;
-            }
-        }
-        basic.setX(finalX);
+        if (!blocksMove(obj, basic, newX, basic.getY()))
+            basic.setX(newX);
+        refreshBounds(obj);
     }
 
-    //TODO remove duplication between setY and also in collision handler and detector
+    /**
+     * Moves the entity vertically unless that would push it into an impassable it was not already inside
+     */
     public void setY(int obj, double newY){
         BasicComponent basic = getComponent(obj, BasicComponent.class);
-        double currentY = basic.getY();
-        double finalY = newY;
-        CollisionDetector collisionDetector = new CollisionDetector(this);
-        Integer[] impassableColliders = collisionDetector.getImpassableColliders(obj, myEntityMap.keySet());
-        for(Integer impassable : impassableColliders){
-            if ((collisionDetector.collideFromTop(impassable, obj) && newY > currentY) ||
-                    (collisionDetector.collideFromTop(impassable, obj) && newY < currentY)) {
-                finalY = currentY;
-            }
+        if (!blocksMove(obj, basic, basic.getX(), newY))
+            basic.setY(newY);
+        refreshBounds(obj);
+    }
+
+    //entities already overlapping an impassable may still move, so they can always get out again
+    private boolean blocksMove(int entityID, BasicComponent basic, double newX, double newY) {
+        double width = basic.getWidth();
+        double height = basic.getHeight();
+        return overlapsImpassable(entityID, newX, newY, width, height) &&
+                !overlapsImpassable(entityID, basic.getX(), basic.getY(), width, height);
+    }
+
+    //static impassables are searched through the static geometry, moving ones through the broad phase
+    private boolean overlapsImpassable(int entityID, double x, double y, double width, double height) {
+        IntPredicate blocks = other -> {
+            if (other == entityID)
+                return false;
+            ImpassableComponent impassable = myStorage.getComponent(other, ImpassableComponent.class);
+            BasicComponent bounds = myStorage.getComponent(other, BasicComponent.class);
+            return impassable != null && impassable.getImpassable() && CollisionDetector.overlaps(x, y, width, height,
+                    bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+        };
+        return getStaticGeometry().anyMatch(x, y, width, height, blocks) ||
+                hasMovingImpassables() && myBroadPhase.anyMatch(x, y, width, height, blocks);
+    }
+
+    //most levels have no moving impassables, and then moves need not search the broad phase at all
+    private boolean hasMovingImpassables() {
+        for (Archetype archetype : myStorage.getArchetypes()) {
+            if (archetype.size() > 0 && archetype.has(MotionComponent.class) &&
+                    archetype.has(ImpassableComponent.class))
+                return true;
         }
-        basic.setY(finalY);
+        return false;
     }
 
     public void rotateAimClockwise(int obj){
@@ -271,7 +504,7 @@ public class EntityManager {
 
     private void rotateAim(int obj, String direction){
         AimComponent aim = getComponent(obj, AimComponent.class);
-        double currentAngle = Math.atan(aim.getYAim()/aim.getXAim());
+        double currentAngle = VectorMath.angle(aim.getXAim(), aim.getYAim());
         double newAngle;
         if(direction.equals("CLOCKWISE")) newAngle = currentAngle + aim.getRotationRate();
         else newAngle = currentAngle - aim.getRotationRate();
@@ -283,44 +516,42 @@ public class EntityManager {
         return myStepTime;
     }
 
+    /**
+     * @return the length of one tick in ticks at Integrator.REFERENCE_TICKS_PER_SECOND, by which motion is scaled
+     */
+    public double getDeltaTime() {
+        return myDeltaTime;
+    }
+
+    public void setDeltaTime(double deltaTime) {
+        myDeltaTime = deltaTime;
+    }
+
     public void moveInDirection(int entityID, double[] direction){
+        moveInDirection(entityID, direction[0], direction[1]);
+    }
+
+    public void moveInDirection(int entityID, double directionX, double directionY){
         MotionComponent motion = getComponent(entityID, MotionComponent.class);
         double tempVel = motion.getMovementVelocity();
-        double tempXVel = tempVel * direction[0];
-        double tempYVel = tempVel * direction[1];
-        setX(entityID, tempXVel * getStepTime());
-        setY(entityID, tempYVel * getStepTime());
+        double tempXVel = tempVel * directionX;
+        double tempYVel = tempVel * directionY;
+        BasicComponent basic = getComponent(entityID, BasicComponent.class);
+        //scaled by the delta time like moveHorizontal, since AI keeps moving this way every tick
+        setX(entityID, basic.getX() + tempXVel * getStepTime() * myDeltaTime);
+        setY(entityID, basic.getY() + tempYVel * getStepTime() * myDeltaTime);
     }
 
     public boolean targetEntityObscured(int targetID, int referenceID) {
-        BasicComponent targetBasic = getComponent(targetID, BasicComponent.class);
-        double targetX = targetBasic.getX();
-        double targetY = targetBasic.getY();
-        return obscured(targetX, targetY, targetID, referenceID);
+        return myLineOfSight.entityObscured(targetID, referenceID);
     }
 
     public boolean targetPointObscured(double targetLocationX, double targetLocationY, int referenceID){
-        return obscured(targetLocationX, targetLocationY, -1, referenceID);
-    }
-
-    private boolean obscured(double targetLocationX, double targetLocationY, double targetID, int referenceID) {
-        BasicComponent referenceBasic = getComponent(referenceID, BasicComponent.class);
-        double referenceX = referenceBasic.getX();
-        double referenceY = referenceBasic.getY();
-
-        for (int ID : myEntityMap.keySet()){
-            if (ID != targetID && ID != referenceID){
-                BasicComponent basic = getComponent(ID, BasicComponent.class);
-                double[] topLeftCorner = {basic.getX(), basic.getY()};
-                double[] bottomRightCorner = {basic.getX() + basic.getWidth(), basic.getY() + basic.getHeight()};
-                if (Line2D.linesIntersect(targetLocationX, targetLocationY, referenceX, referenceY,
-                        topLeftCorner[0], topLeftCorner[1], bottomRightCorner[0], bottomRightCorner[1])){
-                    return true;
-                }
-            }
-        }
+        return myLineOfSight.pointObscured(targetLocationX, targetLocationY, referenceID);
+    }
 
-        return false;
+    public LineOfSight getLineOfSight() {
+        return myLineOfSight;
     }
 
     public void addLogic(int entityID, String additionalLogic) {
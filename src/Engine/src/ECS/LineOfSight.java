@@ -0,0 +1,230 @@
+package Engine.src.ECS;
+
+import Engine.src.Collections.LongObjectMap;
+import Engine.src.Collections.LongSet;
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.ComponentColumns;
+import Engine.src.Components.MotionComponent;
+import Engine.src.ECS.Collision.StaticBVH;
+import Engine.src.ECS.Collision.SweptAABB;
+
+import java.util.Arrays;
+
+/**
+ * Answers whether anything stands between two points, testing the segment joining them against entities' actual
+ * bounds. Only entities near the segment are looked at: static ones through the StaticBVH, moving ones through a
+ * uniform grid of the moving entities that is walked cell by cell along the segment (a DDA walk) and built at most
+ * once a tick. Either search stops at the first entity in the way, and answers between two entities are remembered
+ * until the next tick, so an AI asking again in the same tick gets the answer for free.
+ *
+ * Queries may come from several threads at once (see SystemScheduler); invalidate must not run during them.
+ */
+public class LineOfSight {
+    public static final double DEFAULT_CELL_SIZE = 128;
+    private static final int NONE = -1;
+
+    private final EntityManager myEntityManager;
+    private final double myCellSize;
+    private final LongObjectMap<Cell> myCells;
+    private final LongSet myCheckedPairs;
+    private final LongSet myObscuredPairs;
+    private Cell[] myFilledCells;
+    private int myFilledCellCount;
+    private Cell[] myPreviousCells;
+    private boolean myGridBuilt;
+
+    public LineOfSight(EntityManager entityManager) {
+        this(entityManager, DEFAULT_CELL_SIZE);
+    }
+
+    public LineOfSight(EntityManager entityManager, double cellSize) {
+        myEntityManager = entityManager;
+        myCellSize = cellSize;
+        myCells = new LongObjectMap<>();
+        myCheckedPairs = new LongSet();
+        myObscuredPairs = new LongSet();
+        myFilledCells = new Cell[16];
+        myPreviousCells = new Cell[16];
+    }
+
+    /**
+     * Forgets the remembered answers and the grid of moving entities; called once a tick, before any query
+     */
+    public synchronized void invalidate() {
+        myCheckedPairs.clear();
+        myObscuredPairs.clear();
+        myGridBuilt = false;
+    }
+
+    /**
+     * @return true if an entity other than the two stands between the centres of the reference and the target
+     */
+    public boolean entityObscured(int targetID, int referenceID) {
+        long pair = LongSet.pair(referenceID, targetID);
+        synchronized (this) {
+            if (myCheckedPairs.contains(pair))
+                return myObscuredPairs.contains(pair);
+        }
+        BasicComponent reference = myEntityManager.getComponent(referenceID, BasicComponent.class);
+        BasicComponent target = myEntityManager.getComponent(targetID, BasicComponent.class);
+        boolean obscured = segmentObscured(centreX(reference), centreY(reference), centreX(target), centreY(target),
+                referenceID, targetID);
+        synchronized (this) {
+            myCheckedPairs.add(pair);
+            if (obscured)
+                myObscuredPairs.add(pair);
+        }
+        return obscured;
+    }
+
+    /**
+     * @return true if an entity other than the reference stands between its centre and the point
+     */
+    public boolean pointObscured(double x, double y, int referenceID) {
+        BasicComponent reference = myEntityManager.getComponent(referenceID, BasicComponent.class);
+        return segmentObscured(centreX(reference), centreY(reference), x, y, referenceID, NONE);
+    }
+
+    /**
+     * @return true if the segment from (x0, y0) to (x1, y1) passes through any entity except the two ignored ones
+     */
+    public boolean segmentObscured(double x0, double y0, double x1, double y1, int ignored1, int ignored2) {
+        StaticBVH staticGeometry = ensureGrid();
+        if (staticGeometry.anyOnSegment(x0, y0, x1, y1, entity -> entity != ignored1 && entity != ignored2))
+            return true;
+        return walkGrid(x0, y0, x1, y1, ignored1, ignored2);
+    }
+
+    //Amanatides-Woo: step into whichever neighbouring cell the segment reaches first until the end cell
+    private boolean walkGrid(double x0, double y0, double x1, double y1, int ignored1, int ignored2) {
+        int cellX = cellOf(x0);
+        int cellY = cellOf(y0);
+        int endCellX = cellOf(x1);
+        int endCellY = cellOf(y1);
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY : ((cellX + (dx > 0 ? 1 : 0)) * myCellSize - x0) / dx;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY : ((cellY + (dy > 0 ? 1 : 0)) * myCellSize - y0) / dy;
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : myCellSize / Math.abs(dx);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : myCellSize / Math.abs(dy);
+        int steps = Math.abs(endCellX - cellX) + Math.abs(endCellY - cellY);
+        for (int step = 0; step <= steps; step++) {
+            Cell cell = myCells.get(key(cellX, cellY));
+            if (cell != null && cell.blocks(x0, y0, x1, y1, ignored1, ignored2))
+                return true;
+            if (nextX < nextY) {
+                cellX += stepX;
+                nextX += deltaX;
+            }
+            else {
+                cellY += stepY;
+                nextY += deltaY;
+            }
+        }
+        return false;
+    }
+
+    //moving entities are put in every cell their bounds touch; cells still filled are reused from tick to tick, and
+    //those left empty are dropped so the map only grows with the area the moving entities cover at once
+    private synchronized StaticBVH ensureGrid() {
+        StaticBVH staticGeometry = myEntityManager.getStaticGeometry();
+        if (myGridBuilt)
+            return staticGeometry;
+        Cell[] previousCells = myFilledCells;
+        int previousCount = myFilledCellCount;
+        for (int k = 0; k < previousCount; k++)
+            previousCells[k].mySize = 0;
+        myFilledCells = myPreviousCells;
+        myPreviousCells = previousCells;
+        myFilledCellCount = 0;
+        for (Archetype archetype : myEntityManager.getStorage().getArchetypes()) {
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (bounds == null || !archetype.has(MotionComponent.class))
+                continue;
+            double[] x = bounds.getColumn(BasicComponent.X);
+            double[] y = bounds.getColumn(BasicComponent.Y);
+            double[] width = bounds.getColumn(BasicComponent.WIDTH);
+            double[] height = bounds.getColumn(BasicComponent.HEIGHT);
+            for (int row = 0; row < archetype.size(); row++) {
+                for (int cellX = cellOf(x[row]); cellX <= cellOf(x[row] + width[row]); cellX++) {
+                    for (int cellY = cellOf(y[row]); cellY <= cellOf(y[row] + height[row]); cellY++)
+                        cellAt(cellX, cellY).add(archetype.getEntity(row), x[row], y[row], width[row], height[row]);
+                }
+            }
+        }
+        for (int k = 0; k < previousCount; k++) {
+            if (previousCells[k].mySize == 0)
+                myCells.remove(previousCells[k].myKey);
+            previousCells[k] = null;
+        }
+        myGridBuilt = true;
+        return staticGeometry;
+    }
+
+    private Cell cellAt(int cellX, int cellY) {
+        long key = key(cellX, cellY);
+        Cell cell = myCells.get(key);
+        if (cell == null) {
+            cell = new Cell(key);
+            myCells.put(key, cell);
+        }
+        if (cell.mySize == 0) {
+            if (myFilledCellCount == myFilledCells.length)
+                myFilledCells = Arrays.copyOf(myFilledCells, 2 * myFilledCellCount);
+            myFilledCells[myFilledCellCount++] = cell;
+        }
+        return cell;
+    }
+
+    private int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / myCellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return LongSet.pair(cellX, cellY);
+    }
+
+    private static double centreX(BasicComponent basic) {
+        return basic.getX() + basic.getWidth() / 2;
+    }
+
+    private static double centreY(BasicComponent basic) {
+        return basic.getY() + basic.getHeight() / 2;
+    }
+
+    //bounds are copied in so a walk reads one array per cell rather than looking up each entity's components
+    private static class Cell {
+        private final long myKey;
+        private int[] myEntities = new int[4];
+        private double[] myBounds = new double[16];
+        private int mySize;
+
+        Cell(long key) {
+            myKey = key;
+        }
+
+        void add(int entityID, double x, double y, double width, double height) {
+            if (mySize == myEntities.length) {
+                myEntities = Arrays.copyOf(myEntities, 2 * mySize);
+                myBounds = Arrays.copyOf(myBounds, 8 * mySize);
+            }
+            myEntities[mySize] = entityID;
+            myBounds[4 * mySize] = x;
+            myBounds[4 * mySize + 1] = y;
+            myBounds[4 * mySize + 2] = x + width;
+            myBounds[4 * mySize + 3] = y + height;
+            mySize++;
+        }
+
+        boolean blocks(double x0, double y0, double x1, double y1, int ignored1, int ignored2) {
+            for (int k = 0; k < mySize; k++) {
+                if (myEntities[k] != ignored1 && myEntities[k] != ignored2 && SweptAABB.segmentHits(x0, y0, x1, y1,
+                        myBounds[4 * k], myBounds[4 * k + 1], myBounds[4 * k + 2], myBounds[4 * k + 3]))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Engine.src.ECS.Navigation;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of grid cells by priority, kept in two parallel arrays so pushing and popping allocate nothing once
+ * it has grown. Cells are not looked up again: a cell whose priority improves is pushed a second time and the stale
+ * entry skipped by the caller when popped.
+ */
+class CellHeap {
+    private int[] myCells;
+    private double[] myPriorities;
+    private int mySize;
+
+    CellHeap() {
+        myCells = new int[64];
+        myPriorities = new double[64];
+    }
+
+    void push(int cell, double priority) {
+        if (mySize == myCells.length) {
+            myCells = Arrays.copyOf(myCells, 2 * mySize);
+            myPriorities = Arrays.copyOf(myPriorities, 2 * mySize);
+        }
+        int index = mySize++;
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (myPriorities[parent] <= priority)
+                break;
+            myCells[index] = myCells[parent];
+            myPriorities[index] = myPriorities[parent];
+            index = parent;
+        }
+        myCells[index] = cell;
+        myPriorities[index] = priority;
+    }
+
+    /**
+     * @return the priority of the cell pop would return next
+     */
+    double peekPriority() {
+        return myPriorities[0];
+    }
+
+    /**
+     * @return the cell with the lowest priority, removing it
+     */
+    int pop() {
+        int top = myCells[0];
+        mySize--;
+        int cell = myCells[mySize];
+        double priority = myPriorities[mySize];
+        int index = 0;
+        while (2 * index + 1 < mySize) {
+            int child = 2 * index + 1;
+            if (child + 1 < mySize && myPriorities[child + 1] < myPriorities[child])
+                child++;
+            if (myPriorities[child] >= priority)
+                break;
+            myCells[index] = myCells[child];
+            myPriorities[index] = myPriorities[child];
+            index = child;
+        }
+        myCells[index] = cell;
+        myPriorities[index] = priority;
+        return top;
+    }
+
+    boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    void clear() {
+        mySize = 0;
+    }
+}
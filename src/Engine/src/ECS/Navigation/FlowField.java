@@ -0,0 +1,151 @@
+package Engine.src.ECS.Navigation;
+
+import java.util.Arrays;
+
+/**
+ * Directions towards one goal from every cell of a NavGrid, for crowds chasing the same target. A Dijkstra search out
+ * from the goal cell finds each free cell's distance to it, and each cell then points at its nearest neighbour; any
+ * number of followers read their heading with one array lookup instead of each planning a path.
+ *
+ * Only static blockers are planned around (see NavGrid.isStaticBlocked), so followers that are themselves impassable
+ * neither block each other's field nor force it to be recomputed as they move. A cell blocked by a wall still gets a
+ * direction out of it if it borders a reachable one, so a follower pushed into the edge of a wall finds its way.
+ */
+public class FlowField {
+    private static final double DIAGONAL_COST = Math.sqrt(2);
+    private static final int[] COLUMN_STEPS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] ROW_STEPS = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final double[] X_DIRECTIONS = {1, -1, 0, 0, Math.sqrt(.5), Math.sqrt(.5), -Math.sqrt(.5),
+            -Math.sqrt(.5)};
+    private static final double[] Y_DIRECTIONS = {0, 0, 1, -1, Math.sqrt(.5), -Math.sqrt(.5), Math.sqrt(.5),
+            -Math.sqrt(.5)};
+    private static final byte NO_DIRECTION = -1;
+    private static final int NO_GOAL = -1;
+
+    private final NavGrid myGrid;
+    private final double[] myCosts;
+    private final byte[] myDirections;
+    private final CellHeap myOpen;
+    private int myGoal;
+    private int myStaticVersion;
+
+    public FlowField(NavGrid grid) {
+        myGrid = grid;
+        int cells = grid.getColumns() * grid.getRows();
+        myCosts = new double[cells];
+        myDirections = new byte[cells];
+        myOpen = new CellHeap();
+        myGoal = NO_GOAL;
+    }
+
+    /**
+     * @return true if the field has never been worked out, or was worked out for another goal cell or before the
+     * static blockers last changed
+     */
+    public boolean isStale(int goalCell) {
+        return myGoal != goalCell || myStaticVersion != myGrid.getStaticVersion();
+    }
+
+    /**
+     * Works the field out afresh towards the goal cell
+     */
+    public void compute(int goalCell) {
+        myGoal = goalCell;
+        myStaticVersion = myGrid.getStaticVersion();
+        Arrays.fill(myCosts, Double.POSITIVE_INFINITY);
+        myCosts[goalCell] = 0;
+        myOpen.clear();
+        myOpen.push(goalCell, 0);
+        int columns = myGrid.getColumns();
+        while (!myOpen.isEmpty()) {
+            double popped = myOpen.peekPriority();
+            int cell = myOpen.pop();
+            //a stale entry for a cell already reached more cheaply
+            if (popped > myCosts[cell])
+                continue;
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int direction = 0; direction < COLUMN_STEPS.length; direction++) {
+                if (!canStep(column, row, direction))
+                    continue;
+                int next = (row + ROW_STEPS[direction]) * columns + column + COLUMN_STEPS[direction];
+                double cost = myCosts[cell] + (direction >= 4 ? DIAGONAL_COST : 1);
+                if (cost < myCosts[next]) {
+                    myCosts[next] = cost;
+                    myOpen.push(next, cost);
+                }
+            }
+        }
+        for (int cell = 0; cell < myDirections.length; cell++)
+            myDirections[cell] = cell == goalCell ? NO_DIRECTION : steepestDescent(cell);
+    }
+
+    //the neighbour with the lowest cost to the goal, blocked cells included as starting points but never as targets
+    private byte steepestDescent(int cell) {
+        int columns = myGrid.getColumns();
+        int column = cell % columns;
+        int row = cell / columns;
+        byte best = NO_DIRECTION;
+        double bestCost = myGrid.isStaticBlocked(cell) ? Double.POSITIVE_INFINITY : myCosts[cell];
+        for (int direction = 0; direction < COLUMN_STEPS.length; direction++) {
+            if (!canStep(column, row, direction))
+                continue;
+            int next = (row + ROW_STEPS[direction]) * columns + column + COLUMN_STEPS[direction];
+            if (myCosts[next] < bestCost) {
+                bestCost = myCosts[next];
+                best = (byte) direction;
+            }
+        }
+        return best;
+    }
+
+    //a step must land on a free cell and, if diagonal, not cut the corner of a blocked one
+    private boolean canStep(int column, int row, int direction) {
+        int nextColumn = column + COLUMN_STEPS[direction];
+        int nextRow = row + ROW_STEPS[direction];
+        if (!free(nextColumn, nextRow))
+            return false;
+        return direction < 4 || (free(nextColumn, row) && free(column, nextRow));
+    }
+
+    private boolean free(int column, int row) {
+        return column >= 0 && row >= 0 && column < myGrid.getColumns() && row < myGrid.getRows() &&
+                !myGrid.isStaticBlocked(row * myGrid.getColumns() + column);
+    }
+
+    /**
+     * @return true if following the field from the point leads somewhere: it is not in the goal cell, and the goal can
+     * be reached from it
+     */
+    public boolean hasDirection(double x, double y) {
+        return myGoal != NO_GOAL && myDirections[myGrid.cellAt(x, y)] != NO_DIRECTION;
+    }
+
+    /**
+     * @return the x part of the unit heading at the point, 0 where hasDirection is false
+     */
+    public double getDirectionX(double x, double y) {
+        if (myGoal == NO_GOAL)
+            return 0;
+        byte direction = myDirections[myGrid.cellAt(x, y)];
+        return direction == NO_DIRECTION ? 0 : X_DIRECTIONS[direction];
+    }
+
+    public double getDirectionY(double x, double y) {
+        if (myGoal == NO_GOAL)
+            return 0;
+        byte direction = myDirections[myGrid.cellAt(x, y)];
+        return direction == NO_DIRECTION ? 0 : Y_DIRECTIONS[direction];
+    }
+
+    /**
+     * @return the distance from the point's cell to the goal in cells, infinite if it cannot be reached
+     */
+    public double getDistance(double x, double y) {
+        return myGoal == NO_GOAL ? Double.POSITIVE_INFINITY : myCosts[myGrid.cellAt(x, y)];
+    }
+
+    public int getGoalCell() {
+        return myGoal;
+    }
+}
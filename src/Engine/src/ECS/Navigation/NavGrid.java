@@ -0,0 +1,215 @@
+package Engine.src.ECS.Navigation;
+
+import Engine.src.Collections.IntObjectMap;
+import Engine.src.Components.BasicComponent;
+import Engine.src.Components.Component;
+import Engine.src.Components.ComponentColumns;
+import Engine.src.Components.ImpassableComponent;
+import Engine.src.Components.MotionComponent;
+import Engine.src.ECS.Archetype;
+import Engine.src.ECS.ArchetypeStorage;
+
+/**
+ * Occupancy grid over the level: a cell is blocked while any impassable entity's bounds overlap it. Each cell counts
+ * the entities covering it, so blockers may overlap and one can be taken out without rescanning the others.
+ *
+ * update compares every impassable entity's cells with those it covered last time and only patches the difference,
+ * so a level whose walls stay put costs one pass over the impassable archetypes a tick and no grid writes.
+ *
+ * Cells blocked by entities without a MotionComponent are also counted on their own, for users such as FlowField that
+ * plan around the level's walls and leave moving obstacles to collisions.
+ */
+public class NavGrid {
+    //layout of a footprint: the cells an entity covered when last seen, whether it can move, and the update that saw it
+    private static final int MIN_COLUMN = 0;
+    private static final int MIN_ROW = 1;
+    private static final int MAX_COLUMN = 2;
+    private static final int MAX_ROW = 3;
+    private static final int MOVING = 4;
+    private static final int STAMP = 5;
+
+    private final double myCellSize;
+    private final int myColumns;
+    private final int myRows;
+    private final int[] myBlockers;
+    private final int[] myStaticBlockers;
+    private final IntObjectMap<int[]> myFootprints;
+    private int myStamp;
+    private int myVersion;
+    private int myStaticVersion;
+
+    public NavGrid(double levelWidth, double levelHeight, double cellSize) {
+        myCellSize = cellSize;
+        myColumns = Math.max(1, (int) Math.ceil(levelWidth / cellSize));
+        myRows = Math.max(1, (int) Math.ceil(levelHeight / cellSize));
+        myBlockers = new int[myColumns * myRows];
+        myStaticBlockers = new int[myColumns * myRows];
+        myFootprints = new IntObjectMap<>();
+    }
+
+    /**
+     * Brings the grid up to date with the impassable entities in storage: new and moved ones are (re)stamped, and
+     * those that died or stopped being impassable are cleared
+     */
+    public void update(ArchetypeStorage storage) {
+        myStamp++;
+        for (Archetype archetype : storage.getArchetypes()) {
+            Component[] impassables = archetype.getComponents(ImpassableComponent.class);
+            ComponentColumns bounds = archetype.getColumns(BasicComponent.class);
+            if (impassables == null || bounds == null)
+                continue;
+            double[] x = bounds.getColumn(BasicComponent.X);
+            double[] y = bounds.getColumn(BasicComponent.Y);
+            double[] width = bounds.getColumn(BasicComponent.WIDTH);
+            double[] height = bounds.getColumn(BasicComponent.HEIGHT);
+            int moving = archetype.has(MotionComponent.class) ? 1 : 0;
+            for (int row = 0; row < archetype.size(); row++) {
+                if (((ImpassableComponent) impassables[row]).getImpassable())
+                    place(archetype.getEntity(row), x[row], y[row], width[row], height[row], moving);
+            }
+        }
+        myFootprints.removeIf((entityID, footprint) -> {
+            if (footprint[STAMP] == myStamp)
+                return false;
+            mark(footprint, -1);
+            return true;
+        });
+    }
+
+    private void place(int entityID, double x, double y, double width, double height, int moving) {
+        int minColumn = clampColumn(columnOf(x));
+        int minRow = clampRow(rowOf(y));
+        //bounds are half open, so a wall ending exactly on a cell edge does not block the next cell
+        int maxColumn = clampColumn((int) Math.ceil((x + width) / myCellSize) - 1);
+        int maxRow = clampRow((int) Math.ceil((y + height) / myCellSize) - 1);
+        int[] footprint = myFootprints.get(entityID);
+        if (footprint == null) {
+            footprint = new int[STAMP + 1];
+            myFootprints.put(entityID, footprint);
+        }
+        else if (footprint[MIN_COLUMN] == minColumn && footprint[MIN_ROW] == minRow &&
+                footprint[MAX_COLUMN] == maxColumn && footprint[MAX_ROW] == maxRow && footprint[MOVING] == moving) {
+            footprint[STAMP] = myStamp;
+            return;
+        }
+        else {
+            mark(footprint, -1);
+        }
+        footprint[MIN_COLUMN] = minColumn;
+        footprint[MIN_ROW] = minRow;
+        footprint[MAX_COLUMN] = maxColumn;
+        footprint[MAX_ROW] = maxRow;
+        footprint[MOVING] = moving;
+        footprint[STAMP] = myStamp;
+        mark(footprint, 1);
+    }
+
+    private void mark(int[] footprint, int change) {
+        for (int row = footprint[MIN_ROW]; row <= footprint[MAX_ROW]; row++) {
+            for (int column = footprint[MIN_COLUMN]; column <= footprint[MAX_COLUMN]; column++)
+                myBlockers[row * myColumns + column] += change;
+        }
+        myVersion++;
+        if (footprint[MOVING] == 0) {
+            for (int row = footprint[MIN_ROW]; row <= footprint[MAX_ROW]; row++) {
+                for (int column = footprint[MIN_COLUMN]; column <= footprint[MAX_COLUMN]; column++)
+                    myStaticBlockers[row * myColumns + column] += change;
+            }
+            myStaticVersion++;
+        }
+    }
+
+    public boolean isBlocked(int column, int row) {
+        return column < 0 || row < 0 || column >= myColumns || row >= myRows || myBlockers[row * myColumns + column] > 0;
+    }
+
+    public boolean isBlocked(int cell) {
+        return myBlockers[cell] > 0;
+    }
+
+    /**
+     * @return true if an entity without a MotionComponent blocks the cell
+     */
+    public boolean isStaticBlocked(int cell) {
+        return myStaticBlockers[cell] > 0;
+    }
+
+    /**
+     * @return true if something other than the entity with the given footprint blocks the cell, so an impassable
+     * entity does not stand in its own way
+     */
+    public boolean isBlocked(int cell, int[] ignoredFootprint) {
+        int blockers = myBlockers[cell];
+        if (ignoredFootprint != null && blockers == 1) {
+            int column = cell % myColumns;
+            int row = cell / myColumns;
+            return column < ignoredFootprint[MIN_COLUMN] || column > ignoredFootprint[MAX_COLUMN] ||
+                    row < ignoredFootprint[MIN_ROW] || row > ignoredFootprint[MAX_ROW];
+        }
+        return blockers > 0;
+    }
+
+    /**
+     * @return the cells the entity blocks, or null if it blocks none; owned by the grid and changed by update
+     */
+    public int[] getFootprint(int entityID) {
+        return myFootprints.get(entityID);
+    }
+
+    public int columnOf(double x) {
+        return (int) Math.floor(x / myCellSize);
+    }
+
+    public int rowOf(double y) {
+        return (int) Math.floor(y / myCellSize);
+    }
+
+    /**
+     * @return the index of the cell containing the point, moved onto the grid if the point is off it
+     */
+    public int cellAt(double x, double y) {
+        return clampRow(rowOf(y)) * myColumns + clampColumn(columnOf(x));
+    }
+
+    public double centreX(int cell) {
+        return (cell % myColumns + 0.5) * myCellSize;
+    }
+
+    public double centreY(int cell) {
+        return (cell / myColumns + 0.5) * myCellSize;
+    }
+
+    public int getColumns() {
+        return myColumns;
+    }
+
+    public int getRows() {
+        return myRows;
+    }
+
+    public double getCellSize() {
+        return myCellSize;
+    }
+
+    /**
+     * @return a number that changes whenever a cell becomes blocked or free, so paths planned earlier can be checked
+     */
+    public int getVersion() {
+        return myVersion;
+    }
+
+    /**
+     * @return a number that changes whenever a cell becomes blocked or free by an entity without a MotionComponent
+     */
+    public int getStaticVersion() {
+        return myStaticVersion;
+    }
+
+    private int clampColumn(int column) {
+        return Math.max(0, Math.min(myColumns - 1, column));
+    }
+
+    private int clampRow(int row) {
+        return Math.max(0, Math.min(myRows - 1, row));
+    }
+}
@@ -0,0 +1,209 @@
+package Engine.src.ECS.Navigation;
+
+import Engine.src.Collections.IntObjectMap;
+import Engine.src.Components.BasicComponent;
+import Engine.src.ECS.AIScheduler;
+import Engine.src.ECS.EntityManager;
+
+import java.util.ArrayDeque;
+
+/**
+ * Plans routes around impassable entities for the AI. Entities ask for a path with requestPath and get back a
+ * PathRequest straight away; update, run once a tick, patches the NavGrid and then works through the queued requests
+ * in order, expanding no more than the node budget's worth of cells a tick in total. A search the budget cuts short
+ * carries on where it left off next tick, so many or long requests delay answers rather than frames.
+ *
+ * Crowds chasing one target share a FlowField instead (getFlowField), recomputed by update only when the target moves
+ * to another cell or the walls change. A field is kept up to date for FLOW_FIELD_GRACE_TICKS updates after it was last
+ * asked for, so followers that think only every few ticks (see AIScheduler) find it ready rather than starting over.
+ *
+ * requestPath, getPath and getFlowField may be called from scripts running in parallel (see SystemScheduler).
+ */
+public class NavigationService {
+    public static final double DEFAULT_CELL_SIZE = 32;
+    public static final int DEFAULT_NODE_BUDGET = 2048;
+    public static final int FLOW_FIELD_GRACE_TICKS = AIScheduler.DEFAULT_FAR_INTERVAL;
+
+    private final EntityManager myEntityManager;
+    private final NavGrid myGrid;
+    private final PathFinder myPathFinder;
+    private final ArrayDeque<PathRequest> myQueue;
+    private final IntObjectMap<PathRequest> myRequests;
+    private final IntObjectMap<PathRequest> myRoutes;
+    private final IntObjectMap<KeptFlowField> myFlowFields;
+    private PathRequest mySearching;
+    private int myNodeBudget;
+    private int myUpdateCount;
+
+    public NavigationService(EntityManager entityManager, double levelWidth, double levelHeight) {
+        this(entityManager, levelWidth, levelHeight, DEFAULT_CELL_SIZE);
+    }
+
+    public NavigationService(EntityManager entityManager, double levelWidth, double levelHeight, double cellSize) {
+        myEntityManager = entityManager;
+        myGrid = new NavGrid(levelWidth, levelHeight, cellSize);
+        myPathFinder = new PathFinder(myGrid);
+        myQueue = new ArrayDeque<>();
+        myRequests = new IntObjectMap<>();
+        myRoutes = new IntObjectMap<>();
+        myFlowFields = new IntObjectMap<>();
+        myNodeBudget = DEFAULT_NODE_BUDGET;
+        myGrid.update(entityManager.getStorage());
+    }
+
+    /**
+     * Asks for a route from the entity's centre to the point. An entity has one request at a time: asking again for
+     * the same goal cell returns the request already made (unless it found no path and the grid has changed since),
+     * and asking for another goal cancels it.
+     */
+    public synchronized PathRequest requestPath(int entityID, double goalX, double goalY) {
+        int goalCell = myGrid.cellAt(goalX, goalY);
+        PathRequest current = myRequests.get(entityID);
+        if (current != null && current.getGoalCell() == goalCell && current.getStatus() != PathRequest.Status.CANCELLED &&
+                (current.getStatus() != PathRequest.Status.NO_PATH || current.getGridVersion() == myGrid.getVersion()))
+            return current;
+        if (current != null && !current.isDone())
+            current.setStatus(PathRequest.Status.CANCELLED);
+        PathRequest request = new PathRequest(entityID, goalX, goalY, goalCell);
+        myRequests.put(entityID, request);
+        myQueue.add(request);
+        return request;
+    }
+
+    /**
+     * @return the entity's latest request, or null if it has made none
+     */
+    public synchronized PathRequest getPath(int entityID) {
+        return myRequests.get(entityID);
+    }
+
+    /**
+     * @return the entity's most recently found path, which is still worth following while a newer request is being
+     * answered; null if none has been found
+     */
+    public synchronized PathRequest getRoute(int entityID) {
+        return myRoutes.get(entityID);
+    }
+
+    /**
+     * @return the flow field towards the target entity's centre. A field asked for the first time is only worked out
+     * by the next update, and until then has no directions; one nobody asks for in FLOW_FIELD_GRACE_TICKS updates is
+     * dropped.
+     */
+    public synchronized FlowField getFlowField(int targetID) {
+        KeptFlowField kept = myFlowFields.get(targetID);
+        if (kept == null) {
+            kept = new KeptFlowField(new FlowField(myGrid));
+            myFlowFields.put(targetID, kept);
+        }
+        kept.myLastRequested = myUpdateCount;
+        return kept.myField;
+    }
+
+    /**
+     * Drops the entity's request, e.g. once it has arrived or stopped chasing
+     */
+    public synchronized void cancel(int entityID) {
+        myRoutes.remove(entityID);
+        PathRequest request = myRequests.remove(entityID);
+        if (request != null && !request.isDone())
+            request.setStatus(PathRequest.Status.CANCELLED);
+    }
+
+    /**
+     * Patches the grid for impassable entities that moved, appeared or died, then serves queued requests until the
+     * node budget is spent
+     */
+    public synchronized void update() {
+        myGrid.update(myEntityManager.getStorage());
+        myRoutes.removeIf((entityID, route) -> !myEntityManager.exists(entityID));
+        myRequests.removeIf((entityID, request) -> {
+            if (myEntityManager.exists(entityID))
+                return false;
+            if (!request.isDone())
+                request.setStatus(PathRequest.Status.CANCELLED);
+            return true;
+        });
+        updateFlowFields();
+        int budget = myNodeBudget;
+        while (budget > 0) {
+            if (mySearching == null || mySearching.getStatus() == PathRequest.Status.CANCELLED) {
+                mySearching = nextRequest();
+                if (mySearching == null)
+                    return;
+            }
+            PathFinder.Status status = myPathFinder.step(budget);
+            budget -= Math.max(1, myPathFinder.getExpanded());
+            if (status == PathFinder.Status.SEARCHING)
+                continue;
+            if (status == PathFinder.Status.FOUND) {
+                mySearching.finish(PathRequest.Status.FOUND, myPathFinder.getWaypoints(), myGrid.getVersion());
+                myRoutes.put(mySearching.getEntityID(), mySearching);
+            }
+            else {
+                mySearching.finish(PathRequest.Status.NO_PATH, null, myGrid.getVersion());
+            }
+            mySearching = null;
+        }
+    }
+
+    //fields asked for within the grace period are refreshed if their target changed cell; the others are dropped
+    private void updateFlowFields() {
+        myUpdateCount++;
+        myFlowFields.removeIf((targetID, kept) -> {
+            BasicComponent target = myEntityManager.exists(targetID) ?
+                    myEntityManager.getComponent(targetID, BasicComponent.class) : null;
+            if (target == null || myUpdateCount - kept.myLastRequested > FLOW_FIELD_GRACE_TICKS)
+                return true;
+            int goal = myGrid.cellAt(target.getX() + target.getWidth() / 2, target.getY() + target.getHeight() / 2);
+            if (kept.myField.isStale(goal))
+                kept.myField.compute(goal);
+            return false;
+        });
+    }
+
+    //the next request still worth answering, with its search begun
+    private PathRequest nextRequest() {
+        while (!myQueue.isEmpty()) {
+            PathRequest request = myQueue.poll();
+            if (request.getStatus() == PathRequest.Status.CANCELLED)
+                continue;
+            BasicComponent basic = myEntityManager.exists(request.getEntityID()) ?
+                    myEntityManager.getComponent(request.getEntityID(), BasicComponent.class) : null;
+            if (basic == null) {
+                request.setStatus(PathRequest.Status.CANCELLED);
+                continue;
+            }
+            int start = myGrid.cellAt(basic.getX() + basic.getWidth() / 2, basic.getY() + basic.getHeight() / 2);
+            myPathFinder.begin(start, request.getGoalCell(), myGrid.getFootprint(request.getEntityID()));
+            request.setStatus(PathRequest.Status.SEARCHING);
+            return request;
+        }
+        return null;
+    }
+
+    public NavGrid getGrid() {
+        return myGrid;
+    }
+
+    public int getNodeBudget() {
+        return myNodeBudget;
+    }
+
+    /**
+     * Sets how many grid cells the searches may expand in one update, trading how soon paths arrive against time
+     * spent per tick
+     */
+    public synchronized void setNodeBudget(int nodeBudget) {
+        myNodeBudget = nodeBudget;
+    }
+
+    private static class KeptFlowField {
+        private final FlowField myField;
+        private int myLastRequested;
+
+        KeptFlowField(FlowField field) {
+            myField = field;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package Engine.src.ECS.Navigation;
+
+import java.util.Arrays;
+
+/**
+ * A* search over a NavGrid, moving to any of the eight neighbouring cells but never cutting the corner of a blocked
+ * one. A search is begun once and then stepped: each step expands at most a given number of cells and returns, so a
+ * long search can be spread over several ticks and never holds up a frame.
+ *
+ * Costs, parents and the open CellHeap are reused by every search; cells are marked with the number of the search
+ * that reached them instead of clearing the arrays in between.
+ */
+public class PathFinder {
+    public enum Status {
+        SEARCHING,
+        FOUND,
+        NO_PATH
+    }
+
+    private static final double DIAGONAL_COST = Math.sqrt(2);
+    //breaks ties between equally short paths in favour of cells nearer the goal, giving straighter routes
+    private static final double TIE_BREAK = 1.001;
+    private static final int[] COLUMN_STEPS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] ROW_STEPS = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final NavGrid myGrid;
+    private final double[] myCosts;
+    private final int[] myParents;
+    private final int[] myReached;
+    private final int[] myClosed;
+    private final CellHeap myOpen;
+    private int mySearch;
+    private int myStart;
+    private int myGoal;
+    private int[] myIgnoredFootprint;
+    private int myExpanded;
+    private Status myStatus;
+
+    public PathFinder(NavGrid grid) {
+        myGrid = grid;
+        int cells = grid.getColumns() * grid.getRows();
+        myCosts = new double[cells];
+        myParents = new int[cells];
+        myReached = new int[cells];
+        myClosed = new int[cells];
+        myOpen = new CellHeap();
+        myStatus = Status.NO_PATH;
+    }
+
+    /**
+     * Starts a search between two cells, abandoning any search still going. The start and goal cells count as free
+     * even if blocked, as do cells blocked only by the entity with the ignored footprint (which may be null).
+     */
+    public void begin(int startCell, int goalCell, int[] ignoredFootprint) {
+        mySearch++;
+        myStart = startCell;
+        myGoal = goalCell;
+        myIgnoredFootprint = ignoredFootprint;
+        myOpen.clear();
+        myStatus = Status.SEARCHING;
+        myCosts[startCell] = 0;
+        myParents[startCell] = -1;
+        myReached[startCell] = mySearch;
+        myOpen.push(startCell, heuristic(startCell));
+    }
+
+    /**
+     * Expands up to budget cells of the current search
+     * @return FOUND or NO_PATH once the search is over, SEARCHING if the budget ran out first
+     */
+    public Status step(int budget) {
+        myExpanded = 0;
+        int columns = myGrid.getColumns();
+        while (myStatus == Status.SEARCHING && myExpanded < budget) {
+            if (myOpen.isEmpty()) {
+                myStatus = Status.NO_PATH;
+                break;
+            }
+            int cell = myOpen.pop();
+            //a cell can be in the heap more than once if a cheaper way to it was found; only the first pop counts
+            if (myClosed[cell] == mySearch)
+                continue;
+            myClosed[cell] = mySearch;
+            myExpanded++;
+            if (cell == myGoal) {
+                myStatus = Status.FOUND;
+                break;
+            }
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int direction = 0; direction < COLUMN_STEPS.length; direction++) {
+                int nextColumn = column + COLUMN_STEPS[direction];
+                int nextRow = row + ROW_STEPS[direction];
+                if (!passable(nextColumn, nextRow))
+                    continue;
+                boolean diagonal = direction >= 4;
+                if (diagonal && (!passable(nextColumn, row) || !passable(column, nextRow)))
+                    continue;
+                int next = nextRow * columns + nextColumn;
+                if (myClosed[next] == mySearch)
+                    continue;
+                double cost = myCosts[cell] + (diagonal ? DIAGONAL_COST : 1);
+                if (myReached[next] == mySearch && cost >= myCosts[next])
+                    continue;
+                myReached[next] = mySearch;
+                myCosts[next] = cost;
+                myParents[next] = cell;
+                myOpen.push(next, cost + heuristic(next));
+            }
+        }
+        return myStatus;
+    }
+
+    public Status getStatus() {
+        return myStatus;
+    }
+
+    /**
+     * @return how many cells the last step expanded
+     */
+    public int getExpanded() {
+        return myExpanded;
+    }
+
+    /**
+     * @return the found path as x, y pairs of cell centres from the first cell after the start to the goal, with the
+     * cells along a straight run left out
+     */
+    public double[] getWaypoints() {
+        if (myStatus != Status.FOUND)
+            return new double[0];
+        int length = 0;
+        for (int cell = myGoal; cell != myStart; cell = myParents[cell])
+            length++;
+        int[] cells = new int[length];
+        int cell = myGoal;
+        for (int index = length - 1; index >= 0; index--) {
+            cells[index] = cell;
+            cell = myParents[cell];
+        }
+        double[] waypoints = new double[2 * length];
+        int count = 0;
+        int previous = myStart;
+        for (int index = 0; index < length; index++) {
+            boolean turn = index == length - 1 || cells[index] - previous != cells[index + 1] - cells[index];
+            if (turn) {
+                waypoints[count++] = myGrid.centreX(cells[index]);
+                waypoints[count++] = myGrid.centreY(cells[index]);
+            }
+            previous = cells[index];
+        }
+        return Arrays.copyOf(waypoints, count);
+    }
+
+    private boolean passable(int column, int row) {
+        if (column < 0 || row < 0 || column >= myGrid.getColumns() || row >= myGrid.getRows())
+            return false;
+        int cell = row * myGrid.getColumns() + column;
+        return cell == myGoal || cell == myStart || !myGrid.isBlocked(cell, myIgnoredFootprint);
+    }
+
+    //octile distance: the exact cost of the best path on an empty grid, so the search stays (all but) optimal
+    private double heuristic(int cell) {
+        int columns = myGrid.getColumns();
+        int dx = Math.abs(cell % columns - myGoal % columns);
+        int dy = Math.abs(cell / columns - myGoal / columns);
+        return TIE_BREAK * (Math.max(dx, dy) + (DIAGONAL_COST - 1) * Math.min(dx, dy));
+    }
+}
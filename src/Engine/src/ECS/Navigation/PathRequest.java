@@ -0,0 +1,101 @@
+package Engine.src.ECS.Navigation;
+
+/**
+ * One entity's request for a route to a point, answered by the NavigationService over the following ticks. Poll
+ * getStatus: once FOUND the waypoints are the cell centres to head for in turn, the last one in the goal's cell.
+ */
+public class PathRequest {
+    public enum Status {
+        QUEUED,
+        SEARCHING,
+        FOUND,
+        NO_PATH,
+        CANCELLED
+    }
+
+    private final int myEntityID;
+    private final double myGoalX;
+    private final double myGoalY;
+    private final int myGoalCell;
+    private volatile Status myStatus;
+    private double[] myWaypoints;
+    private int myGridVersion;
+    private int myNextWaypoint;
+
+    PathRequest(int entityID, double goalX, double goalY, int goalCell) {
+        myEntityID = entityID;
+        myGoalX = goalX;
+        myGoalY = goalY;
+        myGoalCell = goalCell;
+        myStatus = Status.QUEUED;
+    }
+
+    public int getEntityID() {
+        return myEntityID;
+    }
+
+    public double getGoalX() {
+        return myGoalX;
+    }
+
+    public double getGoalY() {
+        return myGoalY;
+    }
+
+    public int getGoalCell() {
+        return myGoalCell;
+    }
+
+    public Status getStatus() {
+        return myStatus;
+    }
+
+    /**
+     * @return true once the request has been answered or cancelled
+     */
+    public boolean isDone() {
+        Status status = myStatus;
+        return status != Status.QUEUED && status != Status.SEARCHING;
+    }
+
+    public int getWaypointCount() {
+        return myWaypoints == null ? 0 : myWaypoints.length / 2;
+    }
+
+    public double getWaypointX(int index) {
+        return myWaypoints[2 * index];
+    }
+
+    public double getWaypointY(int index) {
+        return myWaypoints[2 * index + 1];
+    }
+
+    /**
+     * @return the index of the waypoint the entity is heading for, or getWaypointCount once it has reached the last
+     */
+    public int getNextWaypoint() {
+        return myNextWaypoint;
+    }
+
+    public void advance() {
+        myNextWaypoint++;
+    }
+
+    /**
+     * @return the NavGrid version the answer was worked out against
+     */
+    public int getGridVersion() {
+        return myGridVersion;
+    }
+
+    void setStatus(Status status) {
+        myStatus = status;
+    }
+
+    //waypoints are set before the status, which is volatile, so a caller seeing FOUND also sees them
+    void finish(Status status, double[] waypoints, int gridVersion) {
+        myWaypoints = waypoints;
+        myGridVersion = gridVersion;
+        myStatus = status;
+    }
+}
@@ -0,0 +1,86 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.Component;
+import Engine.src.ECS.CommandBuffer;
+import groovy.lang.GroovyInterceptable;
+import groovy.lang.GroovyObjectSupport;
+import groovy.lang.MissingMethodException;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stands in for an engine object (the EntityManager, the CollisionHandler) inside scripts that run in parallel. The
+ * queries listed in QUERIES are answered straight away, with any component they return wrapped in a ReadOnlyComponent.
+ * Methods returning void are recorded in a CommandBuffer and made on the real object at the next sync point. Anything
+ * else would have to return a value the script cannot have yet, so it throws rather than quietly returning null.
+ *
+ * Groovy calls methods dynamically, so scripts written against the real object run unchanged as long as they only
+ * read through queries.
+ */
+public class DeferredCalls extends GroovyObjectSupport implements GroovyInterceptable {
+    //safe to run alongside other workers: reads of the world, and reserveID, which is thread safe
+    private static final Set<String> QUERIES = Set.of("exists", "getComponent", "getDeltaTime", "getStepTime",
+            "hasState", "healthBelow", "reserveID", "targetEntityObscured", "targetPointObscured");
+    private static final int VOID = 0;
+    private static final int VALUE = 1;
+
+    //for each method name, a bit per parameter count in [VOID] if an overload returns void, in [VALUE] if one does not
+    private static final ClassValue<Map<String, long[]>> RETURN_KINDS = new ClassValue<>() {
+        @Override
+        protected Map<String, long[]> computeValue(Class<?> type) {
+            Map<String, long[]> kinds = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                long[] kind = kinds.computeIfAbsent(method.getName(), name -> new long[2]);
+                kind[method.getReturnType() == void.class ? VOID : VALUE] |= arityBit(method.getParameterCount());
+            }
+            return kinds;
+        }
+    };
+
+    private final Object myTarget;
+    private final CommandBuffer myCommands;
+
+    public DeferredCalls(Object target, CommandBuffer commands) {
+        myTarget = target;
+        myCommands = commands;
+    }
+
+    @Override
+    public Object invokeMethod(String name, Object args) {
+        Object[] arguments = InvokerHelper.asArray(args);
+        if (QUERIES.contains(name))
+            return readOnly(InvokerHelper.invokeMethod(myTarget, name, arguments));
+        long[] kinds = RETURN_KINDS.get(myTarget.getClass()).get(name);
+        long arity = arityBit(arguments.length);
+        if (kinds == null || ((kinds[VOID] | kinds[VALUE]) & arity) == 0)
+            throw new MissingMethodException(name, myTarget.getClass(), arguments);
+        if ((kinds[VALUE] & arity) != 0)
+            throw new UnsupportedOperationException(myTarget.getClass().getSimpleName() + "." + name +
+                    " returns a value, which a LogicComponent script cannot wait for: its changes are made after all" +
+                    " scripts have run. Use a method returning void, e.g. reserveID then create(id, components).");
+        myCommands.add(entityManager -> InvokerHelper.invokeMethod(myTarget, name, arguments));
+        return null;
+    }
+
+    //property reads are getter calls, so only the getters among the queries may be read
+    @Override
+    public Object getProperty(String name) {
+        String getter = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        if (!QUERIES.contains(getter))
+            throw new UnsupportedOperationException(myTarget.getClass().getSimpleName() + "." + name +
+                    " cannot be read from a LogicComponent script, which may only read through the queries");
+        return readOnly(InvokerHelper.getProperty(myTarget, name));
+    }
+
+    private static Object readOnly(Object result) {
+        return result instanceof Component ? new ReadOnlyComponent((Component) result) : result;
+    }
+
+    private static long arityBit(int parameterCount) {
+        return 1L << Math.min(parameterCount, Long.SIZE - 1);
+    }
+}
@@ -0,0 +1,28 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.Component;
+
+import java.util.Set;
+
+/**
+ * Per-entity logic run by the SystemScheduler over every entity that has the system's required component.
+ *
+ * A system declares the component types it reads and the ones it writes directly. Systems whose sets do not conflict
+ * may run at the same time, and one system's entities are split across worker threads, so update may only write the
+ * given entity's components of the declared write types. Anything else (other entities, structural changes, calls
+ * into the EntityManager that change state) goes through the context's CommandBuffer.
+ */
+public interface EntitySystem {
+    /**
+     * Stands for every component type in a read or write set
+     */
+    Class<? extends Component> ANY = Component.class;
+
+    Class<? extends Component> getRequiredComponent();
+
+    Set<Class<? extends Component>> getReads();
+
+    Set<Class<? extends Component>> getWrites();
+
+    void update(int entityID, SystemContext context);
+}
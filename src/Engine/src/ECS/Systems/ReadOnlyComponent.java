@@ -0,0 +1,48 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.Component;
+import groovy.lang.GroovyInterceptable;
+import groovy.lang.GroovyObjectSupport;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.util.Set;
+
+/**
+ * What DeferredCalls hands a script running in parallel in place of a live component. Other workers may be reading the
+ * same component, so only its accessors (get, is and has methods, and the few other reads in READS) go through; a
+ * setter or any other call throws. Changes are made through the EntityManager instead, which defers them to the sync
+ * point.
+ */
+class ReadOnlyComponent extends GroovyObjectSupport implements GroovyInterceptable {
+    private static final Set<String> READS = Set.of("contains", "count", "expired", "equals", "hashCode", "toString");
+
+    private final Component myComponent;
+
+    ReadOnlyComponent(Component component) {
+        myComponent = component;
+    }
+
+    @Override
+    public Object invokeMethod(String name, Object args) {
+        if (!isRead(name))
+            throw new UnsupportedOperationException(myComponent.getClass().getSimpleName() + "." + name +
+                    " would change a component LogicComponent scripts may only read; change it through the" +
+                    " entityManager instead, e.g. entityManager.setXVelocity(ID, velocity)");
+        return InvokerHelper.invokeMethod(myComponent, name, args);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return InvokerHelper.getProperty(myComponent, name);
+    }
+
+    @Override
+    public void setProperty(String name, Object value) {
+        throw new UnsupportedOperationException(myComponent.getClass().getSimpleName() + "." + name +
+                " cannot be set from a LogicComponent script; change it through the entityManager instead");
+    }
+
+    private static boolean isRead(String name) {
+        return name.startsWith("get") || name.startsWith("is") || name.startsWith("has") || READS.contains(name);
+    }
+}
@@ -0,0 +1,88 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.Component;
+import Engine.src.Components.LogicComponent;
+import Engine.src.Controller.ScriptCache;
+import Engine.src.ECS.AI;
+import Engine.src.Utilities.GameRandom;
+import groovy.lang.Binding;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs each entity's LogicComponent script. Every worker gets its own Binding holding the Controller's variables, with
+ * the engine objects made safe to share: the AI decides on the worker but queues its moves in the worker's
+ * CommandBuffer, other engine objects are wrapped in DeferredCalls, and GameRandom is passed as it is. Scripts only
+ * read the world directly, and their changes are applied at the sync point after all scripts have run.
+ *
+ * Scripts written for the simulation thread mostly run unchanged, with one exception: a call that returns a value and
+ * is not a query, or a setter on a component a query returned, throws UnsupportedOperationException naming the call
+ * (see DeferredCalls). Such changes have to go through void EntityManager methods, e.g. setXVelocity.
+ */
+public class ScriptLogicSystem implements EntitySystem {
+    private static final String ID = "ID";
+
+    private final ScriptCache myScriptCache;
+    private final Binding mySharedBinding;
+
+    public ScriptLogicSystem(ScriptCache scriptCache, Binding sharedBinding) {
+        myScriptCache = scriptCache;
+        mySharedBinding = sharedBinding;
+    }
+
+    @Override
+    public Class<? extends Component> getRequiredComponent() {
+        return LogicComponent.class;
+    }
+
+    @Override
+    public Set<Class<? extends Component>> getReads() {
+        return Set.of(ANY);
+    }
+
+    @Override
+    public Set<Class<? extends Component>> getWrites() {
+        return Set.of();
+    }
+
+    @Override
+    public void update(int entityID, SystemContext context) {
+        LogicComponent logic = context.getEntityManager().getComponent(entityID, LogicComponent.class);
+        Binding binding = context.getBinding();
+        refreshSharedVariables(binding, context);
+        binding.setVariable(ID, entityID);
+        myScriptCache.run(logic.getLogic(), binding);
+    }
+
+    //the Controller may rebind a variable between runs (a new level's entityManager), so every script sees the current
+    //values; an engine object is only wrapped again when it is not the one already wrapped
+    private void refreshSharedVariables(Binding binding, SystemContext context) {
+        //the simulation thread waits while workers run, so the shared binding is not changing under us
+        Map<?, ?> variables = mySharedBinding.getVariables();
+        Map<String, Object> sources = context.getBindingSources();
+        for (var variable : variables.entrySet()) {
+            String name = (String) variable.getKey();
+            Object value = variable.getValue();
+            if (sources.get(name) == value)
+                continue;
+            sources.put(name, value);
+            binding.setVariable(name, share(value, context));
+        }
+    }
+
+    private static Object share(Object value, SystemContext context) {
+        if (isShareable(value))
+            return value;
+        if (value instanceof AI)
+            return ((AI) value).deferringTo(context.getCommands());
+        return new DeferredCalls(value, context.getCommands());
+    }
+
+    //values every worker may use as they are: plain values, and GameRandom, whose draws come from a stream per thread
+    //fixed by the seed, tick and entity
+    private static boolean isShareable(Object value) {
+        return value instanceof Number || value instanceof String || value instanceof Boolean
+                || value instanceof GameRandom;
+    }
+}
@@ -0,0 +1,48 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.ECS.CommandBuffer;
+import Engine.src.ECS.EntityManager;
+import groovy.lang.Binding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * What a system sees while it updates one slice of its entities on one worker. Each slice has its own command buffer
+ * and its own Binding, so nothing here is shared between threads.
+ */
+public class SystemContext {
+    private final EntityManager myEntityManager;
+    private final CommandBuffer myCommands;
+    private Binding myBinding;
+    private Map<String, Object> myBindingSources;
+
+    SystemContext(EntityManager entityManager, CommandBuffer commands) {
+        myEntityManager = entityManager;
+        myCommands = commands;
+    }
+
+    /**
+     * For reads only while systems are running; changes go through getCommands
+     */
+    public EntityManager getEntityManager() {
+        return myEntityManager;
+    }
+
+    public CommandBuffer getCommands() {
+        return myCommands;
+    }
+
+    public Binding getBinding() {
+        if (myBinding == null)
+            myBinding = new Binding();
+        return myBinding;
+    }
+
+    //what each of the binding's variables was made from, for ScriptLogicSystem to tell when to make it again
+    Map<String, Object> getBindingSources() {
+        if (myBindingSources == null)
+            myBindingSources = new HashMap<>();
+        return myBindingSources;
+    }
+}
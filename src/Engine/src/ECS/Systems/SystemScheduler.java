@@ -0,0 +1,187 @@
+package Engine.src.ECS.Systems;
+
+import Engine.src.Components.Component;
+import Engine.src.ECS.Archetype;
+import Engine.src.ECS.CommandBuffer;
+import Engine.src.ECS.EntityManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs EntitySystems over their entities on a ForkJoinPool.
+ *
+ * Systems are grouped into phases in the order they were added: a system joins the first phase after the last one
+ * holding a system it conflicts with (one writes a component type the other reads or writes). Systems in a phase run
+ * at the same time, each split into slices of entities that are updated on different workers. After each phase is a
+ * sync point where the slices' command buffers are applied one after another, in system order and then entity order,
+ * so the result does not depend on how the work was scheduled.
+ */
+public class SystemScheduler {
+    private static final int SLICE_SIZE = 32;
+    private static final int PARALLEL_THRESHOLD = 2 * SLICE_SIZE;
+
+    private final EntityManager myEntityManager;
+    private final ForkJoinPool myPool;
+    private final List<List<ScheduledSystem>> myPhases;
+
+    public SystemScheduler(EntityManager entityManager) {
+        this(entityManager, ForkJoinPool.commonPool());
+    }
+
+    public SystemScheduler(EntityManager entityManager, ForkJoinPool pool) {
+        myEntityManager = entityManager;
+        myPool = pool;
+        myPhases = new ArrayList<>();
+    }
+
+    public void addSystem(EntitySystem system) {
+        int phase = 0;
+        for (int k = myPhases.size() - 1; k >= 0; k--) {
+            if (conflictsWithPhase(system, myPhases.get(k))) {
+                phase = k + 1;
+                break;
+            }
+        }
+        if (phase == myPhases.size())
+            myPhases.add(new ArrayList<>());
+        myPhases.get(phase).add(new ScheduledSystem(system));
+    }
+
+    public int getPhaseCount() {
+        return myPhases.size();
+    }
+
+    /**
+     * Runs every system once over its entities, then applies their commands
+     */
+    public void run() {
+        for (List<ScheduledSystem> phase : myPhases) {
+            int entityCount = 0;
+            for (ScheduledSystem scheduled : phase)
+                entityCount += scheduled.collectEntities();
+            if (entityCount < PARALLEL_THRESHOLD) {
+                for (ScheduledSystem scheduled : phase)
+                    scheduled.runSlices(0, scheduled.myEntityCount);
+            }
+            else {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[phase.size()];
+                for (int k = 0; k < tasks.length; k++)
+                    tasks[k] = new SliceTask(phase.get(k), 0, phase.get(k).myEntityCount);
+                myPool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(tasks);
+                    }
+                });
+            }
+            for (ScheduledSystem scheduled : phase)
+                scheduled.applyCommands();
+        }
+    }
+
+    private boolean conflictsWithPhase(EntitySystem system, List<ScheduledSystem> phase) {
+        for (ScheduledSystem other : phase) {
+            if (writesAny(system.getWrites(), other.mySystem.getReads(), other.mySystem.getWrites())
+                    || writesAny(other.mySystem.getWrites(), system.getReads(), system.getWrites()))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean writesAny(Set<Class<? extends Component>> writes, Set<Class<? extends Component>> reads,
+                                     Set<Class<? extends Component>> otherWrites) {
+        for (Class<? extends Component> written : writes) {
+            if (overlaps(written, reads) || overlaps(written, otherWrites))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean overlaps(Class<? extends Component> type, Set<Class<? extends Component>> types) {
+        return !types.isEmpty() && (type == EntitySystem.ANY || types.contains(EntitySystem.ANY) || types.contains(type));
+    }
+
+    private class ScheduledSystem {
+        private final EntitySystem mySystem;
+        private int[] myEntities;
+        private int myEntityCount;
+        private SystemContext[] mySliceContexts;
+
+        private ScheduledSystem(EntitySystem system) {
+            mySystem = system;
+            myEntities = new int[SLICE_SIZE];
+            mySliceContexts = new SystemContext[0];
+        }
+
+        private int collectEntities() {
+            myEntityCount = 0;
+            for (Archetype archetype : myEntityManager.getStorage().getArchetypes()) {
+                if (!archetype.has(mySystem.getRequiredComponent()))
+                    continue;
+                int size = archetype.size();
+                if (myEntityCount + size > myEntities.length)
+                    myEntities = Arrays.copyOf(myEntities, Math.max(myEntityCount + size, 2 * myEntities.length));
+                System.arraycopy(archetype.getEntities(), 0, myEntities, myEntityCount, size);
+                myEntityCount += size;
+            }
+            //contexts, and the bindings in them, are kept from tick to tick
+            int slices = (myEntityCount + SLICE_SIZE - 1) / SLICE_SIZE;
+            if (mySliceContexts.length < slices) {
+                int oldLength = mySliceContexts.length;
+                mySliceContexts = Arrays.copyOf(mySliceContexts, slices);
+                for (int k = oldLength; k < slices; k++)
+                    mySliceContexts[k] = new SystemContext(myEntityManager, new CommandBuffer());
+            }
+            for (int k = 0; k < slices; k++)
+                mySliceContexts[k].getCommands().clear(); //left over if a previous run threw
+            return myEntityCount;
+        }
+
+        //start is always a multiple of SLICE_SIZE, so every slice maps to one context however the work is split
+        private void runSlices(int start, int end) {
+            for (int sliceStart = start; sliceStart < end; sliceStart += SLICE_SIZE) {
+                SystemContext context = mySliceContexts[sliceStart / SLICE_SIZE];
+                int sliceEnd = Math.min(end, sliceStart + SLICE_SIZE);
+                for (int k = sliceStart; k < sliceEnd; k++)
+                    mySystem.update(myEntities[k], context);
+            }
+        }
+
+        private void applyCommands() {
+            int slices = (myEntityCount + SLICE_SIZE - 1) / SLICE_SIZE;
+            for (int k = 0; k < slices; k++)
+                mySliceContexts[k].getCommands().apply(myEntityManager);
+        }
+    }
+
+    private static class SliceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ScheduledSystem myScheduled;
+        private final int myStart;
+        private final int myEnd;
+
+        private SliceTask(ScheduledSystem scheduled, int start, int end) {
+            myScheduled = scheduled;
+            myStart = start;
+            myEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            int slices = (myEnd - myStart + SLICE_SIZE - 1) / SLICE_SIZE;
+            if (slices <= 1) {
+                myScheduled.runSlices(myStart, myEnd);
+                return;
+            }
+            int middle = myStart + (slices / 2) * SLICE_SIZE;
+            invokeAll(new SliceTask(myScheduled, myStart, middle), new SliceTask(myScheduled, middle, myEnd));
+        }
+    }
+}
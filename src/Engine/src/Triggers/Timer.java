@@ -3,8 +3,6 @@ package Engine.src.Triggers;
 import Engine.src.Controller.LevelManager;
 import Engine.src.ECS.EntityManager;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import groovy.lang.Script;
 
 public class Timer {
     double myCount;
@@ -31,17 +29,19 @@ public class Timer {
 
     public void activateEvents(String events, EntityManager entityManager, LevelManager levelManager) {
         Binding managerSetter = new Binding();
-        GroovyShell shell = new GroovyShell();
         managerSetter.setProperty("entityManager", entityManager);
         managerSetter.setProperty("levelManager", levelManager);
-        Script script = shell.parse(events);
-        script.run();
+        entityManager.getScriptCache().run(events, managerSetter);
     }
 
     public void setCount(double currentCount){myCount = currentCount;}
 
-    public void increment(){
-        myCount++;
+    /**
+     * Advances the timer by one tick of dt, measured like durations in ticks at
+     * Integrator.REFERENCE_TICKS_PER_SECOND, so a timer lasts as long in seconds at any tick rate
+     */
+    public void increment(double dt){
+        myCount += dt;
     }
 
     public double getEndTime() {
@@ -0,0 +1,86 @@
+package Engine.src.Utilities;
+
+/**
+ * Random numbers for game logic that come out the same every time a game is replayed with the same seed. Draws are
+ * made through forEntity, which positions a stream at a point fixed by the seed, the tick and the entity, so the
+ * numbers an entity gets do not depend on which thread runs its script (see SystemScheduler) or on what other
+ * entities drew first. Each thread reuses one stream, so drawing allocates nothing.
+ *
+ * The streams are SplitMix64, the generator behind java.util.SplittableRandom, which cannot be re-seeded in place.
+ */
+public class GameRandom {
+    public static final long DEFAULT_SEED = 0x5DEECE66DL;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final ThreadLocal<Stream> myStreams;
+    private volatile long mySeed;
+    private volatile long myTick;
+
+    public GameRandom(long seed) {
+        mySeed = seed;
+        myStreams = ThreadLocal.withInitial(Stream::new);
+    }
+
+    /**
+     * Moves on to the next tick, giving every entity fresh numbers; called once a tick before any draws
+     */
+    public void nextTick() {
+        myTick++;
+    }
+
+    /**
+     * @return this thread's stream, started afresh for the entity on this tick. Calling again for the same entity in
+     * the same tick starts the same numbers over, and the stream is only valid until the thread's next forEntity call.
+     */
+    public Stream forEntity(int entityID) {
+        Stream stream = myStreams.get();
+        stream.myState = mix(mix(mySeed + myTick * GOLDEN_GAMMA) + entityID * GOLDEN_GAMMA);
+        return stream;
+    }
+
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Starts the numbers over from the first tick with a new seed, e.g. the one a recorded game was played with
+     */
+    public void setSeed(long seed) {
+        mySeed = seed;
+        myTick = 0;
+    }
+
+    public long getTick() {
+        return myTick;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static class Stream {
+        private long myState;
+
+        public long nextLong() {
+            myState += GOLDEN_GAMMA;
+            return mix(myState);
+        }
+
+        /**
+         * @return a number in [0, 1)
+         */
+        public double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        /**
+         * @return a normally distributed number with mean 0 and standard deviation 1 (Box-Muller)
+         */
+        public double nextGaussian() {
+            double u = 1 - nextDouble();
+            return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * nextDouble());
+        }
+    }
+}
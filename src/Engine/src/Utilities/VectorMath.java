@@ -0,0 +1,38 @@
+package Engine.src.Utilities;
+
+/**
+ * 2D vector helpers that take and return primitives, so finding a direction or a distance allocates nothing. A vector
+ * is passed as its x and y parts; methods returning a vector come in pairs, one for each part.
+ */
+public final class VectorMath {
+    private VectorMath() {
+    }
+
+    public static double length(double x, double y) {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    public static double distance(double x0, double y0, double x1, double y1) {
+        return length(x1 - x0, y1 - y0);
+    }
+
+    /**
+     * @return the x part of the unit vector in the direction of (x, y), or 0 for the zero vector
+     */
+    public static double normalizeX(double x, double y) {
+        double length = length(x, y);
+        return length == 0 ? 0 : x / length;
+    }
+
+    public static double normalizeY(double x, double y) {
+        double length = length(x, y);
+        return length == 0 ? 0 : y / length;
+    }
+
+    /**
+     * @return the angle of (x, y) from the positive x axis in radians, in (-pi, pi], correct in every quadrant
+     */
+    public static double angle(double x, double y) {
+        return Math.atan2(y, x);
+    }
+}
@@ -0,0 +1,86 @@
+package Player.PlayerMain;
+
+import Engine.src.Controller.RenderSnapshot;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws every entity into one Canvas, so the scene graph holds a single node however many sprites are on screen.
+ * Draws are sorted by z-index and, within a z-index, grouped by texture so consecutive drawImage calls share an image.
+ */
+public class CanvasRenderer implements SnapshotRenderer {
+    private static final int INDEX_BITS = 24;
+    private static final int TEXTURE_BITS = 24;
+    private static final int Z_BITS = 63 - INDEX_BITS - TEXTURE_BITS; //keeps the sign bit clear
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long TEXTURE_MASK = (1L << TEXTURE_BITS) - 1;
+    private static final int MIN_Z = -(1 << (Z_BITS - 1));
+    private static final int MAX_Z = (1 << (Z_BITS - 1)) - 1;
+
+    private final Canvas myCanvas;
+    private final GraphicsContext myGraphics;
+    private final TextureCache myTextureCache;
+    private final Map<String, Integer> myTextureIDs;
+    private long[] myDrawOrder;
+
+    public CanvasRenderer(double width, double height, TextureCache textureCache) {
+        myCanvas = new Canvas(width, height);
+        myGraphics = myCanvas.getGraphicsContext2D();
+        myTextureCache = textureCache;
+        myTextureIDs = new HashMap<>();
+        myDrawOrder = new long[0];
+    }
+
+    @Override
+    public Node getNode() {
+        return myCanvas;
+    }
+
+    @Override
+    public void draw(RenderSnapshot previous, RenderSnapshot current, double alpha) {
+        myGraphics.clearRect(0, 0, myCanvas.getWidth(), myCanvas.getHeight());
+        double offsetX = SnapshotRenderer.interpolate(previous.getOffsetX(), current.getOffsetX(), alpha);
+        double offsetY = SnapshotRenderer.interpolate(previous.getOffsetY(), current.getOffsetY(), alpha);
+        int count = sortDraws(current);
+        for (int k = 0; k < count; k++) {
+            int index = (int) (myDrawOrder[k] & INDEX_MASK);
+            Image image = myTextureCache.get(current.getImage(index));
+            if (image == null || image.getProgress() < 1)
+                continue;
+            double x = current.getX(index);
+            double y = current.getY(index);
+            int previousIndex = previous.indexOf(current.getEntity(index));
+            if (previousIndex != -1) {
+                x = SnapshotRenderer.interpolate(previous.getX(previousIndex), x, alpha);
+                y = SnapshotRenderer.interpolate(previous.getY(previousIndex), y, alpha);
+            }
+            myGraphics.drawImage(image, x - offsetX, y - offsetY, current.getWidth(index), current.getHeight(index));
+        }
+    }
+
+    //each draw is packed into one long as z-index | texture | snapshot index, so a primitive sort orders them
+    private int sortDraws(RenderSnapshot snapshot) {
+        int count = Math.min(snapshot.size(), (int) INDEX_MASK);
+        if (myDrawOrder.length < count)
+            myDrawOrder = new long[Math.max(count, 2 * myDrawOrder.length)];
+        for (int index = 0; index < count; index++) {
+            long z = Math.max(MIN_Z, Math.min(MAX_Z, snapshot.getZIndex(index))) - (long) MIN_Z;
+            long texture = textureIDOf(snapshot.getImage(index)) & TEXTURE_MASK;
+            myDrawOrder[index] = (z << (TEXTURE_BITS + INDEX_BITS)) | (texture << INDEX_BITS) | index;
+        }
+        Arrays.sort(myDrawOrder, 0, count);
+        return count;
+    }
+
+    private int textureIDOf(String filename) {
+        if (filename == null)
+            return 0;
+        return myTextureIDs.computeIfAbsent(filename, name -> myTextureIDs.size() + 1);
+    }
+}
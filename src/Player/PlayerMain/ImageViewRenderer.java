@@ -0,0 +1,91 @@
+package Player.PlayerMain;
+
+import Engine.src.Collections.IntObjectMap;
+import Engine.src.Controller.RenderSnapshot;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Draws each entity as its own ImageView. Views of entities that leave the snapshot go back to a pool and are reused
+ * for the next entities to come on screen.
+ */
+public class ImageViewRenderer implements SnapshotRenderer {
+    private final Pane myGameRoot;
+    private final TextureCache myTextureCache;
+    private final IntObjectMap<ImageView> myImageViewMap;
+    private final Deque<ImageView> myImageViewPool;
+
+    public ImageViewRenderer(double width, double height, TextureCache textureCache) {
+        myGameRoot = new Pane();
+        //only on-screen entities are attached, so the pane is sized to the screen rather than to its children
+        myGameRoot.setPrefSize(width, height);
+        myGameRoot.setClip(new Rectangle(width, height));
+        myTextureCache = textureCache;
+        myImageViewMap = new IntObjectMap<>();
+        myImageViewPool = new ArrayDeque<>();
+    }
+
+    @Override
+    public Node getNode() {
+        return myGameRoot;
+    }
+
+    @Override
+    public void draw(RenderSnapshot previous, RenderSnapshot current, double alpha) {
+        removeStaleImageViews(current);
+        double offsetX = SnapshotRenderer.interpolate(previous.getOffsetX(), current.getOffsetX(), alpha);
+        double offsetY = SnapshotRenderer.interpolate(previous.getOffsetY(), current.getOffsetY(), alpha);
+        for (int index = 0; index < current.size(); index++) {
+            int id = current.getEntity(index);
+            ImageView imageView = myImageViewMap.get(id);
+            if (imageView == null) {
+                imageView = myImageViewPool.isEmpty() ? new ImageView() : myImageViewPool.pop();
+                myImageViewMap.put(id, imageView);
+                myGameRoot.getChildren().add(imageView);
+            }
+            double x = current.getX(index);
+            double y = current.getY(index);
+            int previousIndex = previous.indexOf(id);
+            if (previousIndex != -1) {
+                x = SnapshotRenderer.interpolate(previous.getX(previousIndex), x, alpha);
+                y = SnapshotRenderer.interpolate(previous.getY(previousIndex), y, alpha);
+            }
+            moveAndResize(imageView, x - offsetX, y - offsetY, current.getWidth(index), current.getHeight(index));
+            setImageIfNecessary(imageView, current.getImage(index));
+        }
+    }
+
+    private void removeStaleImageViews(RenderSnapshot snapshot) {
+        myImageViewMap.removeIf((id, imageView) -> {
+            if (snapshot.indexOf(id) != -1)
+                return false;
+            myGameRoot.getChildren().remove(imageView);
+            myImageViewPool.push(imageView);
+            return true;
+        });
+    }
+
+    private void moveAndResize(ImageView imageView, double x, double y, double width, double height) {
+        imageView.setX(x);
+        imageView.setY(y);
+        imageView.setFitWidth(width);
+        imageView.setFitHeight(height);
+    }
+
+    //the view remembers which file it shows, so it is only touched when an entity changes its image
+    private void setImageIfNecessary(ImageView imageView, String filename) {
+        if (filename == null || filename.equals(imageView.getUserData()))
+            return;
+        Image newImage = myTextureCache.get(filename);
+        if (newImage == null)
+            return;
+        imageView.setImage(newImage);
+        imageView.setUserData(filename);
+    }
+}
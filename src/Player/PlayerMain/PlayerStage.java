@@ -1,30 +1,24 @@
 package Player.PlayerMain;
 
-import Engine.src.Components.BasicComponent;
-import Engine.src.Components.Component;
-import Engine.src.Components.HealthComponent;
-import Engine.src.Components.MotionComponent;
 import Engine.src.Controller.Controller;
+import Engine.src.Controller.FrameProfiler;
+import Engine.src.Controller.RenderSnapshot;
+import Engine.src.Controller.SimulationLoop;
+import Engine.src.Controller.UpdateStage;
 import gamedata.Game;
 import hud.DataTracker;
 import hud.HUDView;
 import hud.NumericalDataTracker;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class PlayerStage {
@@ -41,11 +35,13 @@ public class PlayerStage {
     public final double GAME_HEIGHT = 800;
     public final Paint GAME_BG = Color.BLACK;
 
-    public static final int FRAMES_PER_SECOND = 15;
-    public static final int MILLISECOND_DELAY = 1000 / FRAMES_PER_SECOND;
-    public static final double SECOND_DELAY = 1.0 / FRAMES_PER_SECOND;
+    //motion, moves and timers are scaled to the rate, so this only sets smoothness
+    public static final int SIMULATION_TICKS_PER_SECOND = 60;
     private static final int HUD_UPDATE_DELAY = 10;
     private static final boolean HUD_INCLUDES_PLOTTER = true;
+    private static final long TEXTURE_BUDGET_BYTES = TextureCache.DEFAULT_BUDGET_BYTES;
+    private static final boolean LOAD_TEXTURES_IN_BACKGROUND = true;
+    private static final boolean HUD_INCLUDES_PROFILER = true;
 
     private Scene myScene;
     private GridPane myVisualRoot;
@@ -53,9 +49,11 @@ public class PlayerStage {
     private HUDView myHud;
 
     private Controller myGameController;
-    private Pane myGameRoot;
-    private Map<Integer, Map<Class<? extends Component>, Component>> myGameEntityMap;
-    private Map<Integer, ImageView> myImageViewMap;
+    private SimulationLoop mySimulation;
+    private AnimationTimer myRenderTimer;
+    private RenderMode myRenderMode;
+    private SnapshotRenderer myRenderer;
+    private TextureCache myTextureCache;
 
     private NumericalDataTracker<Double> myXPosTracker;
     private NumericalDataTracker<Double> myYPosTracker;
@@ -64,11 +62,19 @@ public class PlayerStage {
     private NumericalDataTracker<Integer> myLivesTracker;
     private NumericalDataTracker<Integer> myScoreTracker;
     private DataTracker<String> myPowerupTracker;
+    private DataTracker<String> myFrameTimeTracker;
+    private DataTracker<String> mySlowestStageTracker;
+    private FrameProfiler myProfiler;
 
-    private int myCount;
+    private long myLastHudUpdate;
     private int gamePaused;
 
     public PlayerStage() {
+        this(RenderMode.fromSystemProperty());
+    }
+
+    public PlayerStage(RenderMode renderMode) {
+        myRenderMode = renderMode;
         myVisualRoot = new GridPane();
         //mySidePanelWidth = ST_WIDTH / 3.0;
         //myLeftPanel = new SidePanel(mySidePanelWidth);
@@ -88,110 +94,79 @@ public class PlayerStage {
     public void run(String gameName) {
         Stage gameStage = new Stage();
 
-        myImageViewMap = new HashMap<>(); //FIXME go full screen
+        myTextureCache = new TextureCache(TEXTURE_BUDGET_BYTES, LOAD_TEXTURES_IN_BACKGROUND);
+        //FIXME go full screen
+        myRenderer = myRenderMode.createRenderer(myScene.getWidth(), myScene.getHeight(), myTextureCache);
         myGameController = new Controller(STEP_TIME, myScene.getWidth(), myScene.getHeight(), GAME_WIDTH / 3.0, GAME_HEIGHT);
-        myGameEntityMap = myGameController.getEntities();
+        myProfiler = new FrameProfiler();
+        myGameController.setStageRecorder(myProfiler);
+        mySimulation = new SimulationLoop(myGameController, SIMULATION_TICKS_PER_SECOND);
 
         initDataTrackers();
         initBorderPane();
 
-        addNewImageViews();
-
         Scene gameScene = new Scene(myBorderPane, GAME_BG);
         //gameScene.getStylesheets().add("style.css");
         gameScene.getStylesheets().add("hud.css");
         gameStage.setScene(gameScene);
         gameStage.show();
-        gameScene.setOnKeyPressed(e -> myGameController.processKey(e.getCode().toString()));
+        gameStage.setOnHidden(e -> stopAnimation());
+        gameScene.setOnKeyPressed(e -> mySimulation.submitKey(e.getCode().toString()));
         animate();
     }
 
     private void setHud() {
-        myHud = new HUDView(HUD_WIDTH, ST_HEIGHT, "Level 1", HUD_INCLUDES_PLOTTER, myXPosTracker,
-                                                                                        myYPosTracker,
-                                                                                        myYVelocity,
-                                                                                        myTimeTracker,
-                                                                                        myLivesTracker,
-                                                                                        myPowerupTracker);
+        List<DataTracker<?>> trackers = new ArrayList<>(List.of(myXPosTracker, myYPosTracker, myYVelocity, myTimeTracker,
+                myLivesTracker, myPowerupTracker));
+        if (HUD_INCLUDES_PROFILER) {
+            trackers.add(myFrameTimeTracker);
+            trackers.add(mySlowestStageTracker);
+        }
+        myHud = new HUDView(HUD_WIDTH, ST_HEIGHT, "Level 1", HUD_INCLUDES_PLOTTER, trackers.toArray(new DataTracker<?>[0]));
     }
 
     private void initBorderPane() {
         myBorderPane = new BorderPane();
-        myGameRoot = new Pane();
-        myBorderPane.setCenter(myGameRoot);
+        myBorderPane.setCenter(myRenderer.getNode());
         setHud();
         myBorderPane.setLeft(myHud.getNode());
     }
 
+    //the engine ticks on its own thread; each JavaFX pulse only draws the latest snapshots
     private void animate() {
-        var frame = new KeyFrame(Duration.millis(MILLISECOND_DELAY), e -> step());
-        var animation = new Timeline();
-        animation.setCycleCount(Timeline.INDEFINITE);
-        animation.getKeyFrames().add(frame);
-        animation.play();
-    }
-
-    private void step() {
-        setGamePaused();
-        if (gamePaused == 0) {
-            myGameController.updateScene();
-            addNewImageViews();
-            updateOrRemoveImageViews();
-
-            if (myCount % HUD_UPDATE_DELAY == 0) {
-                updateDataTrackers();
-                myHud.update();
+        myRenderTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                step();
             }
-            myCount++;
-        }
+        };
+        mySimulation.start();
+        myRenderTimer.start();
     }
 
-    private void updateOrRemoveImageViews() {
-        for (int id : myImageViewMap.keySet()) {
-            if (!myGameEntityMap.containsKey(id))
-                myGameRoot.getChildren().remove(myImageViewMap.get(id));
-            updateImageView(id);
-        }
+    private void stopAnimation() {
+        myRenderTimer.stop();
+        mySimulation.stop();
     }
 
-    private void addNewImageViews() {
-        for (int id : myGameEntityMap.keySet()) {
-            if (myImageViewMap.containsKey(id))
-                continue;
-            var newImageView = new ImageView();
-            myImageViewMap.put(id, newImageView);
-            myGameRoot.getChildren().add(newImageView);
-            updateImageView(id);
+    private void step() {
+        //rethrown here so a failed tick surfaces on the JavaFX thread, as it did when the engine ran on it
+        if (mySimulation.getFailure() != null) {
+            stopAnimation();
+            throw new IllegalStateException("The simulation stopped", mySimulation.getFailure());
+        }
+        setGamePaused();
+        mySimulation.setPaused(gamePaused != 0);
+        SimulationLoop.Frame frame = mySimulation.getFrame();
+        RenderSnapshot current = frame.getCurrent();
+        myRenderer.draw(frame.getPrevious(), current, mySimulation.getAlpha(frame, System.nanoTime()));
+
+        long hudUpdate = current.getTick() / HUD_UPDATE_DELAY;
+        if (hudUpdate != myLastHudUpdate) {
+            updateDataTrackers(current);
+            myHud.update();
+            myLastHudUpdate = hudUpdate;
         }
-    }
-
-    private void updateImageView(int id) {
-        BasicComponent basicComponent = (BasicComponent) myGameEntityMap.get(id).get(BasicComponent.class);
-        MotionComponent motionComponent = (MotionComponent) myGameEntityMap.get(id).get(MotionComponent.class);
-        HealthComponent healthComponent = (HealthComponent) myGameEntityMap.get(id).get(HealthComponent.class);
-        if (basicComponent == null)
-            return;
-
-        ImageView imageView = myImageViewMap.get(id);
-        moveAndResize(imageView, basicComponent);
-        setImageIfNecessary(imageView, basicComponent);
-    }
-
-    private void moveAndResize(ImageView imageView, BasicComponent basicComponent) {
-        imageView.setX(basicComponent.getX() - myGameController.getOffset()[0]);
-        imageView.setY(basicComponent.getY() - myGameController.getOffset()[1]);
-        imageView.setFitWidth(basicComponent.getWidth());
-        imageView.setFitHeight(basicComponent.getHeight());
-    }
-
-    private void setImageIfNecessary(ImageView imageView, BasicComponent entity) {
-        InputStream newInputStream = this.getClass().getResourceAsStream(entity.getMyFilename());
-        if (newInputStream == null)
-            return;
-
-        Image newImage = new Image(newInputStream);
-        if (!newImage.equals(imageView.getImage()))
-            imageView.setImage(newImage);
     }
 
     private void initDataTrackers() {
@@ -202,18 +177,28 @@ public class PlayerStage {
         myLivesTracker = new NumericalDataTracker<>("Lives");
         myScoreTracker = new NumericalDataTracker<>("Score");
         myPowerupTracker = new DataTracker<>("Powerup");
+        myFrameTimeTracker = new DataTracker<>("Tick");
+        mySlowestStageTracker = new DataTracker<>("Slowest stage");
     }
 
-    private void updateDataTrackers() {
-        BasicComponent basicComponent = (BasicComponent) myGameEntityMap.get(0).get(BasicComponent.class);
-        MotionComponent motionComponent = (MotionComponent) myGameEntityMap.get(0).get(MotionComponent.class);
-        myTimeTracker.storeData(myCount * 1.0); //TODO get actual time
-        myXPosTracker.storeData(basicComponent.getX());
-        myYPosTracker.storeData(basicComponent.getY());
-        myYVelocity.storeData(motionComponent.getYVelocity());
+    private void updateDataTrackers(RenderSnapshot snapshot) {
+        //everything comes from the snapshot; the live components belong to the simulation thread
+        int userIndex = snapshot.indexOf(snapshot.getUserID());
+        if (userIndex == -1)
+            return;
+        myTimeTracker.storeData(snapshot.getTick() * 1.0); //TODO get actual time
+        myXPosTracker.storeData(snapshot.getX(userIndex));
+        myYPosTracker.storeData(snapshot.getY(userIndex));
+        if (snapshot.hasUserVelocity())
+            myYVelocity.storeData(snapshot.getUserYVelocity());
         myLivesTracker.storeData(2); //FIXME
         myScoreTracker.storeData(0); //FIXME
         myPowerupTracker.storeData("Flower"); //FIXME
+        if (HUD_INCLUDES_PROFILER) {
+            myFrameTimeTracker.storeData(myProfiler.getFrameStats().toString());
+            UpdateStage slowest = myProfiler.getSlowestStage();
+            mySlowestStageTracker.storeData(slowest + " " + myProfiler.getStats(slowest));
+        }
     }
 
     /**
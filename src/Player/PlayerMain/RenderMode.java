@@ -0,0 +1,33 @@
+package Player.PlayerMain;
+
+/**
+ * How the PlayerStage draws the game. IMAGE_VIEWS keeps one scene graph node per visible entity; CANVAS draws every
+ * entity into a single Canvas and scales better to levels with thousands of sprites.
+ *
+ * Chosen at launch with -Dplayer.renderMode=CANVAS, or by passing a mode to the PlayerStage.
+ */
+public enum RenderMode {
+    IMAGE_VIEWS,
+    CANVAS;
+
+    public static final String PROPERTY = "player.renderMode";
+
+    public static RenderMode fromSystemProperty() {
+        String mode = System.getProperty(PROPERTY);
+        if (mode == null)
+            return IMAGE_VIEWS;
+        try {
+            return valueOf(mode.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Unknown render mode " + mode + ", using " + IMAGE_VIEWS);
+            return IMAGE_VIEWS;
+        }
+    }
+
+    public SnapshotRenderer createRenderer(double width, double height, TextureCache textureCache) {
+        if (this == CANVAS)
+            return new CanvasRenderer(width, height, textureCache);
+        return new ImageViewRenderer(width, height, textureCache);
+    }
+}
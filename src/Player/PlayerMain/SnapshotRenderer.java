@@ -0,0 +1,22 @@
+package Player.PlayerMain;
+
+import Engine.src.Controller.RenderSnapshot;
+import javafx.scene.Node;
+
+/**
+ * Draws the engine's RenderSnapshots into the game area of the PlayerStage. Called on the JavaFX thread once per pulse
+ * with the two latest snapshots and how far between them the current moment lies.
+ */
+public interface SnapshotRenderer {
+
+    Node getNode();
+
+    void draw(RenderSnapshot previous, RenderSnapshot current, double alpha);
+
+    /**
+     * @return the value a fraction alpha of the way from previous to current
+     */
+    static double interpolate(double previous, double current, double alpha) {
+        return previous + alpha * (current - previous);
+    }
+}
@@ -0,0 +1,125 @@
+package Player.PlayerMain;
+
+import javafx.scene.image.Image;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decoded images shared by every entity that uses the same file, keyed by BasicComponent.getMyFilename().
+ * Each file is decoded once and kept until the cache goes over its memory budget, at which point the least recently
+ * used images are dropped. With background loading on, images are decoded on JavaFX's loader thread and show up in
+ * their ImageViews once ready instead of stalling the frame that first needs them.
+ *
+ * Meant to be used from the JavaFX application thread only.
+ */
+public class TextureCache {
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final long myBudgetBytes;
+    private final boolean myBackgroundLoading;
+    private final LinkedHashMap<String, Image> myImages;
+    private final Map<String, Long> myImageBytes;
+    private final Set<String> myMissingFiles;
+    private long myUsedBytes;
+    private int myLoads;
+    private int myEvictions;
+
+    public TextureCache() {
+        this(DEFAULT_BUDGET_BYTES, false);
+    }
+
+    public TextureCache(long budgetBytes, boolean backgroundLoading) {
+        myBudgetBytes = budgetBytes;
+        myBackgroundLoading = backgroundLoading;
+        myImages = new LinkedHashMap<>(16, 0.75f, true);
+        myImageBytes = new HashMap<>();
+        myMissingFiles = new HashSet<>();
+    }
+
+    /**
+     * @return the decoded image for a resource path, or null if there is no such resource
+     */
+    public Image get(String filename) {
+        if (filename == null || myMissingFiles.contains(filename))
+            return null;
+        Image image = myImages.get(filename);
+        if (image == null)
+            image = load(filename);
+        return image;
+    }
+
+    public void clear() {
+        myImages.clear();
+        myImageBytes.clear();
+        myUsedBytes = 0;
+    }
+
+    public int size() {
+        return myImages.size();
+    }
+
+    public long getUsedBytes() {
+        return myUsedBytes;
+    }
+
+    public int getLoads() {
+        return myLoads;
+    }
+
+    public int getEvictions() {
+        return myEvictions;
+    }
+
+    private Image load(String filename) {
+        URL resource = this.getClass().getResource(filename);
+        if (resource == null) {
+            myMissingFiles.add(filename);
+            return null;
+        }
+        Image image = new Image(resource.toExternalForm(), myBackgroundLoading);
+        myLoads++;
+        myImages.put(filename, image);
+        if (image.getProgress() >= 1)
+            account(filename, image);
+        else
+            image.progressProperty().addListener((property, oldProgress, newProgress) -> {
+                if (newProgress.doubleValue() >= 1 && myImages.get(filename) == image)
+                    account(filename, image);
+            });
+        return image;
+    }
+
+    //a background image only knows its size once loaded, so it is charged to the budget then
+    private void account(String filename, Image image) {
+        long bytes = (long) (image.getWidth() * image.getHeight()) * BYTES_PER_PIXEL;
+        myImageBytes.put(filename, bytes);
+        myUsedBytes += bytes;
+        evictOverBudget(filename);
+    }
+
+    private void evictOverBudget(String keep) {
+        var eldest = myImages.keySet().iterator();
+        while (myUsedBytes > myBudgetBytes && eldest.hasNext()) {
+            String filename = eldest.next();
+            if (filename.equals(keep))
+                continue;
+            eldest.remove();
+            Long bytes = myImageBytes.remove(filename);
+            if (bytes != null)
+                myUsedBytes -= bytes;
+            myEvictions++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TextureCache[%d images, %d/%d bytes, %d loads, %d evictions]",
+                myImages.size(), myUsedBytes, myBudgetBytes, myLoads, myEvictions);
+    }
+}
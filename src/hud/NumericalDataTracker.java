@@ -6,7 +6,7 @@ package hud;
  *
  * @author Hunter Gregory
  */
-public class NumericalDataTracker<T extends Number> extends DataTracker {
+public class NumericalDataTracker<T extends Number> extends DataTracker<T> {
     public NumericalDataTracker(String name) {
         super(name);
     }
@@ -11,6 +11,9 @@ module voogasalad.crackingopen {
     requires gson;
     requires org.codehaus.groovy;
     requires java.desktop;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
 
     opens GameCenter.main to javafx.fxml, javafx.graphics;
     opens GameCenter.gameData to gson;